@@ -0,0 +1,143 @@
+package com.phanthanhthien.cmp3025.bookstore.benchmarks;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.Cart;
+import com.phanthanhthien.cmp3025.bookstore.entities.CartItem;
+import com.phanthanhthien.cmp3025.bookstore.entities.Category;
+import com.phanthanhthien.cmp3025.bookstore.entities.Order;
+import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * BenchmarkData - Dữ liệu giả lập cho benchmark
+ *
+ * Giá, số lượng, độ dài mô tả gần với dữ liệu thật của nhà sách.
+ * Seed cố định để các lần chạy so sánh được với nhau.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public final class BenchmarkData {
+
+    private static final long SEED = 2280603036L;
+
+    private static final String[] WORDS = {
+            "sách", "tiểu", "thuyết", "kinh", "tế", "lịch", "sử", "Việt", "Nam", "tâm", "lý",
+            "kỹ", "năng", "sống", "khoa", "học", "thiếu", "nhi", "văn", "học", "nghệ", "thuật"
+    };
+
+    private BenchmarkData() {
+        // Private constructor để ngăn khởi tạo
+    }
+
+    public static List<Category> categories(int count) {
+        List<Category> categories = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            categories.add(new Category(i, "Danh mục " + i, "Mô tả danh mục " + i));
+        }
+        return categories;
+    }
+
+    public static List<Book> books(int count, int categoryCount) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<Book> books = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            Book book = new Book(i, sentence(random, 4), sentence(random, 2), sentence(random, 40),
+                    price(random), random.nextInt(0, 500), (long) random.nextInt(1, categoryCount + 1));
+            book.setImageUrl("https://cdn.bookstore.local/books/" + i + ".jpg");
+            books.add(book);
+        }
+        return books;
+    }
+
+    public static List<CartItem> cartItems(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<CartItem> items = new ArrayList<>(count);
+        for (long i = 1; i <= count; i++) {
+            items.add(new CartItem(i, sentence(random, 4), sentence(random, 2),
+                    "https://cdn.bookstore.local/books/" + i + ".jpg", price(random), random.nextInt(1, 6)));
+        }
+        return items;
+    }
+
+    public static Cart cart(int itemCount) {
+        Cart cart = new Cart("user-1");
+        cart.setItems(cartItems(itemCount));
+        return cart;
+    }
+
+    public static Voucher voucher() {
+        Voucher voucher = new Voucher();
+        voucher.setId("voucher-1");
+        voucher.setCode("SALE20");
+        voucher.setDiscountPercent(BigDecimal.valueOf(20));
+        voucher.setMaxDiscountAmount(BigDecimal.valueOf(100_000));
+        voucher.setMinOrderAmount(BigDecimal.valueOf(200_000));
+        voucher.setMaxUsage(1000);
+        voucher.setCurrentUsage(10);
+        voucher.setIsActive(true);
+        voucher.setValidFrom(LocalDateTime.now().minusDays(1));
+        voucher.setValidTo(LocalDateTime.now().plusMonths(1));
+        return voucher;
+    }
+
+    public static Order order(int itemCount) {
+        Cart cart = cart(itemCount);
+        Order order = new Order();
+        order.setId("65f0c0ffee0000000000" + String.format("%04d", itemCount));
+        order.setUserId("user-1");
+        order.setUsername("khachhang");
+        order.setItems(cart.getItems());
+        order.setTotalAmount(cart.getTotalAmount());
+        order.setDiscountAmount(BigDecimal.valueOf(50_000));
+        order.setFinalAmount(cart.getTotalAmount().subtract(BigDecimal.valueOf(50_000)));
+        order.setPaymentMethod("MOMO");
+        order.setPaymentStatus("SUCCESS");
+        order.setOrderStatus("PROCESSING");
+        order.setReceiverName("Nguyễn Văn A");
+        order.setReceiverPhone("0901234567");
+        order.setReceiverAddress("123 Nguyễn Huệ, Quận 1, TP. Hồ Chí Minh");
+        order.setVoucherCode("SALE20");
+        order.setMomoRequestId("REQ-" + itemCount);
+        order.setMomoTransId("4088878653");
+        order.setOrderInfo("Thanh toán đơn hàng");
+        order.setCreatedAt(LocalDateTime.now());
+        order.setPaidAt(LocalDateTime.now());
+        return order;
+    }
+
+    /**
+     * Gán field @Autowired / @Value khi không có Spring context
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Không gán được field " + fieldName, e);
+        }
+    }
+
+    private static BigDecimal price(SplittableRandom random) {
+        // 20.000 - 500.000 VNĐ, làm tròn nghìn
+        return BigDecimal.valueOf(random.nextInt(20, 501) * 1000L);
+    }
+
+    private static String sentence(SplittableRandom random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            builder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return builder.toString();
+    }
+}
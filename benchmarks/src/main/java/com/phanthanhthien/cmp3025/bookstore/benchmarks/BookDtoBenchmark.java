@@ -0,0 +1,91 @@
+package com.phanthanhthien.cmp3025.bookstore.benchmarks;
+
+import com.phanthanhthien.cmp3025.bookstore.dto.BookDTO;
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.Category;
+import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BookDtoBenchmark - BookService.convertToDTOList (trang danh sách sách, REST API)
+ *
+ * CategoryRepository được thay bằng bản trong bộ nhớ để chỉ đo phần
+ * gom categoryId và chuyển đổi DTO, không đo MongoDB.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookDtoBenchmark {
+
+    // 20 = một trang, 1000 = xuất / API lấy tất cả
+    @Param({ "20", "200", "1000" })
+    public int books;
+
+    private static final int CATEGORY_COUNT = 30;
+
+    private BookService bookService;
+    private List<Book> bookList;
+
+    @Setup
+    public void setUp() {
+        bookList = BenchmarkData.books(books, CATEGORY_COUNT);
+        bookService = new BookService();
+        BenchmarkData.inject(bookService, "categoryRepository",
+                inMemoryCategories(BenchmarkData.categories(CATEGORY_COUNT)));
+    }
+
+    @Benchmark
+    public List<BookDTO> convertToDTOList() {
+        return bookService.convertToDTOList(bookList);
+    }
+
+    /**
+     * CategoryRepository chỉ hỗ trợ findAllById (hàm convertToDTOList dùng)
+     */
+    private static CategoryRepository inMemoryCategories(List<Category> categories) {
+        return (CategoryRepository) Proxy.newProxyInstance(
+                CategoryRepository.class.getClassLoader(),
+                new Class<?>[] { CategoryRepository.class },
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findAllById" -> {
+                        Set<Object> ids = new HashSet<>();
+                        ((Iterable<?>) args[0]).forEach(ids::add);
+                        List<Category> result = new ArrayList<>();
+                        for (Category category : categories) {
+                            if (ids.contains(category.getId())) {
+                                result.add(category);
+                            }
+                        }
+                        yield result;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryCategoryRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
@@ -0,0 +1,68 @@
+package com.phanthanhthien.cmp3025.bookstore.benchmarks;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Cart;
+import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+import com.phanthanhthien.cmp3025.bookstore.services.VoucherService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CartBenchmark - Tính tổng giỏ hàng và giảm giá voucher
+ *
+ * Chạy mỗi lần render giỏ hàng / trang thanh toán.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CartBenchmark {
+
+    // Giỏ hàng thường 1-10 cuốn, 200 là giỏ của khách sỉ
+    @Param({ "3", "20", "200" })
+    public int items;
+
+    private Cart cart;
+    private Voucher voucher;
+    private VoucherService voucherService;
+    private BigDecimal orderAmount;
+
+    @Setup
+    public void setUp() {
+        cart = BenchmarkData.cart(items);
+        voucher = BenchmarkData.voucher();
+        voucherService = new VoucherService();
+        orderAmount = cart.getTotalAmount();
+    }
+
+    @Benchmark
+    public BigDecimal totalAmount() {
+        return cart.getTotalAmount();
+    }
+
+    @Benchmark
+    public int totalItems() {
+        return cart.getTotalItems();
+    }
+
+    @Benchmark
+    public BigDecimal calculateDiscount() {
+        return voucherService.calculateDiscount(voucher, orderAmount);
+    }
+}
@@ -0,0 +1,99 @@
+package com.phanthanhthien.cmp3025.bookstore.benchmarks;
+
+import com.phanthanhthien.cmp3025.bookstore.security.JwtUtils;
+import com.phanthanhthien.cmp3025.bookstore.services.MomoPaymentService;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SecurityBenchmark - Chữ ký MoMo (HMAC-SHA256) và JWT
+ *
+ * - hmacSHA256: mỗi lần tạo thanh toán và mỗi callback / IPN
+ * - JWT: mỗi request REST có header Authorization
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SecurityBenchmark {
+
+    private static final String SECRET_KEY = "at67qH6mk8w5Y1nAyMoYKMWACiEi2bsa";
+
+    // Chuỗi rawSignature của IPN với độ dài thực tế
+    private static final String RAW_SIGNATURE = "accessKey=klm05TvNBzhg7h7j&amount=350000"
+            + "&extraData=&message=Successful.&orderId=65f0c0ffee00000000000042"
+            + "&orderInfo=Thanh toan don hang 65f0c0ffee00000000000042&orderType=momo_wallet"
+            + "&partnerCode=MOMOBKUN20180529&payType=qr&requestId=1718000000000"
+            + "&responseTime=1718000001234&resultCode=0&transId=4088878653";
+
+    // hmacSHA256 là private trong MomoPaymentService
+    private static final MethodHandle HMAC_SHA256;
+
+    static {
+        try {
+            HMAC_SHA256 = MethodHandles.privateLookupIn(MomoPaymentService.class, MethodHandles.lookup())
+                    .findVirtual(MomoPaymentService.class, "hmacSHA256",
+                            MethodType.methodType(String.class, String.class, String.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private MomoPaymentService momoPaymentService;
+    private JwtUtils jwtUtils;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        momoPaymentService = new MomoPaymentService();
+
+        jwtUtils = new JwtUtils();
+        BenchmarkData.inject(jwtUtils, "jwtSecret", "bookstoreSecretKey2024VeryLongSecretKeyForHS256Algorithm");
+        BenchmarkData.inject(jwtUtils, "jwtExpiration", 86_400_000L);
+        jwtUtils.init();
+
+        UserDetails user = User.withUsername("khachhang").password("n/a").roles("USER").build();
+        token = jwtUtils.generateToken(user);
+    }
+
+    @Benchmark
+    public String momoSignature() throws Throwable {
+        return (String) HMAC_SHA256.invoke(momoPaymentService, RAW_SIGNATURE, SECRET_KEY);
+    }
+
+    @Benchmark
+    public Claims jwtParse() {
+        return jwtUtils.extractAllClaims(token);
+    }
+
+    @Benchmark
+    public String jwtExtractUsername() {
+        return jwtUtils.extractUsername(token);
+    }
+
+    @Benchmark
+    public Boolean jwtValidate() {
+        return jwtUtils.validateToken(token);
+    }
+}
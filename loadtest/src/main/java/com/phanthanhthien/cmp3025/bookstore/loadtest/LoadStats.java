@@ -0,0 +1,136 @@
+package com.phanthanhthien.cmp3025.bookstore.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * LoadStats - Gom độ trễ và lỗi theo từng bước của kịch bản
+ *
+ * Lưu toàn bộ độ trễ (micro giây) để tính percentile chính xác; một lần
+ * chạy vài trăm nghìn request chỉ tốn vài MB.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class LoadStats {
+
+    private static final int MAX_ERROR_KINDS = 10;
+
+    private final Map<String, StepStats> steps = new LinkedHashMap<>();
+
+    private final AtomicLong iterations = new AtomicLong();
+    private final AtomicLong failedIterations = new AtomicLong();
+    private final AtomicLong failedSetups = new AtomicLong();
+
+    public LoadStats(List<String> stepNames) {
+        for (String name : stepNames) {
+            steps.putIfAbsent(name, new StepStats());
+        }
+    }
+
+    public void record(String step, long nanos, String error) {
+        StepStats stats = steps.get(step);
+        if (stats != null) {
+            stats.record(nanos, error);
+        }
+    }
+
+    public void iterationCompleted(boolean success) {
+        (success ? iterations : failedIterations).incrementAndGet();
+    }
+
+    public void setupFailed() {
+        failedSetups.incrementAndGet();
+    }
+
+    /**
+     * Báo cáo: throughput, tỉ lệ lỗi và percentile độ trễ (ms) của từng bước
+     */
+    public Map<String, Object> summarize(double elapsedSeconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("iterations", iterations.get());
+        summary.put("failedIterations", failedIterations.get());
+        summary.put("failedSetups", failedSetups.get());
+        summary.put("iterationsPerSecond", round(iterations.get() / elapsedSeconds));
+
+        Map<String, Object> stepSummaries = new LinkedHashMap<>();
+        steps.forEach((name, stats) -> stepSummaries.put(name, stats.summarize(elapsedSeconds)));
+        summary.put("steps", stepSummaries);
+        return summary;
+    }
+
+    static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static class StepStats {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private long[] latencies = new long[1024];
+        private int count;
+        private long errors;
+        private final Map<String, Long> errorKinds = new LinkedHashMap<>();
+
+        void record(long nanos, String error) {
+            lock.lock();
+            try {
+                if (count == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, count * 2);
+                }
+                latencies[count++] = nanos / 1000;
+                if (error != null) {
+                    errors++;
+                    if (errorKinds.size() < MAX_ERROR_KINDS || errorKinds.containsKey(error)) {
+                        errorKinds.merge(error, 1L, Long::sum);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Map<String, Object> summarize(double elapsedSeconds) {
+            long[] sorted;
+            long errorCount;
+            Map<String, Long> kinds;
+            lock.lock();
+            try {
+                sorted = Arrays.copyOf(latencies, count);
+                errorCount = errors;
+                kinds = new LinkedHashMap<>(errorKinds);
+            } finally {
+                lock.unlock();
+            }
+            Arrays.sort(sorted);
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", sorted.length);
+            summary.put("errors", errorCount);
+            summary.put("errorRate", sorted.length == 0 ? 0.0 : round((double) errorCount / sorted.length));
+            summary.put("throughput", round(sorted.length / elapsedSeconds));
+
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("mean", sorted.length == 0 ? 0.0 : round(Arrays.stream(sorted).average().orElse(0) / 1000));
+            latency.put("p50", percentile(sorted, 50));
+            latency.put("p90", percentile(sorted, 90));
+            latency.put("p95", percentile(sorted, 95));
+            latency.put("p99", percentile(sorted, 99));
+            latency.put("max", sorted.length == 0 ? 0.0 : round(sorted[sorted.length - 1] / 1000.0));
+            summary.put("latencyMs", latency);
+            summary.put("errorKinds", kinds);
+            return summary;
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(p / 100 * sorted.length) - 1;
+            return round(sorted[Math.max(0, index)] / 1000.0);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.phanthanhthien.cmp3025.bookstore.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LoadTestMain - Chạy MoMo stub, các virtual user theo kịch bản và in báo cáo
+ *
+ * Mỗi virtual user là một virtual thread, nên vài nghìn user vẫn chỉ tốn
+ * vài carrier thread ở phía harness.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options;
+        try {
+            options = LoadTestOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        MomoStubGateway stub = new MomoStubGateway(options);
+        stub.start();
+        System.out.printf("🧪 MoMo stub: http://localhost:%d/v2/gateway/api/create (trễ %d±%d ms, lỗi %.0f%%, từ chối %.0f%%)%n",
+                options.stubPort(), options.stubLatencyMs(), options.stubJitterMs(),
+                options.stubErrorRate() * 100, options.stubDeclineRate() * 100);
+
+        if (options.stubOnly()) {
+            System.out.println("Chỉ chạy stub, Ctrl+C để dừng.");
+            new CountDownLatch(1).await();
+            return;
+        }
+
+        try {
+            if (!isReachable(options.baseUrl())) {
+                System.err.println("❌ Không kết nối được " + options.baseUrl()
+                        + " - chạy ứng dụng với profile loadtest trước.");
+                System.exit(1);
+                return;
+            }
+            run(options, stub);
+        } finally {
+            stub.stop();
+        }
+    }
+
+    private static void run(LoadTestOptions options, MomoStubGateway stub) throws Exception {
+        Scenario scenario = Scenario.load(Paths.get(options.scenario()));
+        LoadStats stats = new LoadStats(scenario.stepNames());
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        System.out.printf("▶ Kịch bản %s: %d user, ramp-up %ds, chạy %ds (%s)%n",
+                scenario.name(), options.users(), options.rampUpSeconds(), options.durationSeconds(),
+                options.baseUrl());
+
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(options.rampUpSeconds() + options.durationSeconds());
+        long rampStepNanos = options.users() > 1
+                ? TimeUnit.SECONDS.toNanos(options.rampUpSeconds()) / options.users()
+                : 0;
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 1; i <= options.users(); i++) {
+                long startDelay = rampStepNanos * (i - 1);
+                VirtualUser user = new VirtualUser(i, scenario, options, stats, executor, deadline, objectMapper);
+                executor.execute(() -> {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(startDelay);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    user.run();
+                });
+            }
+            // close() chờ mọi user chạy xong
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        stub.awaitIpns();
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", options.label());
+        report.put("scenario", scenario.name());
+        report.put("startedAt", startedAt.toString());
+        report.put("elapsedSeconds", LoadStats.round(elapsedSeconds));
+        report.put("options", options);
+        report.putAll(stats.summarize(elapsedSeconds));
+        report.put("momoStub", stub.getStats());
+
+        printReport(report);
+
+        Path reportDir = Paths.get(options.reportDir());
+        Files.createDirectories(reportDir);
+        Path reportFile = reportDir.resolve("loadtest-report-" + options.label() + ".json");
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT).writeValue(reportFile.toFile(), report);
+        System.out.println("📄 Báo cáo: " + reportFile.toAbsolutePath());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(Map<String, Object> report) {
+        System.out.println();
+        System.out.printf("%-22s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                "Bước", "Số lần", "Lỗi", "req/s", "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms");
+        Map<String, Object> steps = (Map<String, Object>) report.get("steps");
+        steps.forEach((name, value) -> {
+            Map<String, Object> step = (Map<String, Object>) value;
+            Map<String, Object> latency = (Map<String, Object>) step.get("latencyMs");
+            System.out.printf("%-22s %8s %7s %9s %9s %9s %9s %9s %9s%n",
+                    name, step.get("count"), step.get("errors"), step.get("throughput"),
+                    latency.get("p50"), latency.get("p90"), latency.get("p95"), latency.get("p99"),
+                    latency.get("max"));
+            Map<String, Long> errorKinds = (Map<String, Long>) step.get("errorKinds");
+            errorKinds.forEach((kind, count) -> System.out.printf("    ⚠ %s x%d%n", kind, count));
+        });
+        System.out.printf("%nVòng kịch bản: %s thành công, %s lỗi (%s vòng/s)%n",
+                report.get("iterations"), report.get("failedIterations"), report.get("iterationsPerSecond"));
+        System.out.println("MoMo stub: " + report.get("momoStub"));
+    }
+
+    private static boolean isReachable(String baseUrl) {
+        try {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(3)).build();
+            HttpResponse<Void> response = client.send(
+                    HttpRequest.newBuilder(URI.create(baseUrl + "/api")).timeout(Duration.ofSeconds(5)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 500;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
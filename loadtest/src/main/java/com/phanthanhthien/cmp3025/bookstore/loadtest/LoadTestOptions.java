@@ -0,0 +1,94 @@
+package com.phanthanhthien.cmp3025.bookstore.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LoadTestOptions - Tham số dòng lệnh của harness (--key=value)
+ *
+ * Giá trị mặc định khớp với application-loadtest.yml của ứng dụng.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public record LoadTestOptions(
+        String baseUrl,
+        int users,
+        int durationSeconds,
+        int rampUpSeconds,
+        int iterations,
+        String scenario,
+        String label,
+        String reportDir,
+        int stubPort,
+        int stubLatencyMs,
+        int stubJitterMs,
+        double stubErrorRate,
+        double stubDeclineRate,
+        int ipnDelayMs,
+        String partnerCode,
+        String accessKey,
+        String secretKey,
+        boolean stubOnly) {
+
+    public static final String USAGE = """
+            Tham số (--key=value):
+              --base-url=http://localhost:8080   địa chỉ ứng dụng
+              --users=50                         số virtual user chạy đồng thời
+              --duration=60                      thời gian chạy (giây), sau ramp-up
+              --ramp-up=10                       thời gian tăng dần số user (giây)
+              --iterations=0                     số vòng kịch bản mỗi user (0 = chạy tới hết thời gian)
+              --scenario=scenarios/checkout.json file kịch bản
+              --label=run                        tên lần chạy, dùng trong tên file báo cáo
+              --report-dir=target                thư mục ghi báo cáo JSON
+              --stub-port=9099                   cổng MoMo stub
+              --stub-latency-ms=150              độ trễ API tạo thanh toán
+              --stub-jitter-ms=50                dao động ngẫu nhiên thêm vào độ trễ
+              --stub-error-rate=0                tỉ lệ trả HTTP 500 (0..1)
+              --stub-decline-rate=0              tỉ lệ giao dịch bị từ chối (0..1)
+              --ipn-delay-ms=200                 thời gian từ lúc thanh toán tới lúc gửi IPN
+              --stub-only                        chỉ chạy MoMo stub, không chạy kịch bản
+            """;
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (arg.isBlank()) {
+                continue;
+            }
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Tham số không hợp lệ: " + arg + "\n" + USAGE);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                values.put(arg.substring(2), "true");
+            } else {
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+
+        return new LoadTestOptions(
+                trimSlash(values.getOrDefault("base-url", "http://localhost:8080")),
+                Integer.parseInt(values.getOrDefault("users", "50")),
+                Integer.parseInt(values.getOrDefault("duration", "60")),
+                Integer.parseInt(values.getOrDefault("ramp-up", "10")),
+                Integer.parseInt(values.getOrDefault("iterations", "0")),
+                values.getOrDefault("scenario", "scenarios/checkout.json"),
+                values.getOrDefault("label", "run"),
+                values.getOrDefault("report-dir", "target"),
+                Integer.parseInt(values.getOrDefault("stub-port", "9099")),
+                Integer.parseInt(values.getOrDefault("stub-latency-ms", "150")),
+                Integer.parseInt(values.getOrDefault("stub-jitter-ms", "50")),
+                Double.parseDouble(values.getOrDefault("stub-error-rate", "0")),
+                Double.parseDouble(values.getOrDefault("stub-decline-rate", "0")),
+                Integer.parseInt(values.getOrDefault("ipn-delay-ms", "200")),
+                values.getOrDefault("partner-code", "MOMOBKUN20180529"),
+                values.getOrDefault("access-key", "klm05TvNBzhg7h7j"),
+                values.getOrDefault("secret-key", "at67qH6mk8w5Y1nAyMoYKMWACiEi2bsa"),
+                Boolean.parseBoolean(values.getOrDefault("stub-only", "false")));
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
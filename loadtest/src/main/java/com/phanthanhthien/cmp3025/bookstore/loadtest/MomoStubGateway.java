@@ -0,0 +1,317 @@
+package com.phanthanhthien.cmp3025.bookstore.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MomoStubGateway - MoMo giả lập chạy trong tiến trình harness
+ *
+ * - POST /v2/gateway/api/create: kiểm tra chữ ký, chờ độ trễ cấu hình được,
+ *   trả payUrl trỏ về stub (hoặc HTTP 500 theo tỉ lệ lỗi)
+ * - GET /pay: giả lập người dùng thanh toán xong trên app MoMo, redirect về
+ *   redirectUrl của ứng dụng (callback) và hẹn gửi IPN tới ipnUrl
+ *
+ * IPN được ký bằng cùng secret key nên đi qua bước xác thực chữ ký của ứng dụng.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class MomoStubGateway {
+
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final LoadTestOptions options;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // orderId -> request tạo thanh toán, chờ người dùng "thanh toán"
+    private final Map<String, Map<String, Object>> pendingPayments = new ConcurrentHashMap<>();
+
+    private final ExecutorService handlers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService ipnScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final HttpClient ipnClient;
+
+    private final AtomicLong transIds = new AtomicLong(4_088_000_000L);
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong invalidSignatures = new AtomicLong();
+    private final AtomicLong paid = new AtomicLong();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong ipnDelivered = new AtomicLong();
+    private final AtomicLong ipnFailed = new AtomicLong();
+
+    private HttpServer server;
+
+    public MomoStubGateway(LoadTestOptions options) {
+        this.options = options;
+        this.ipnClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(handlers)
+                .build();
+    }
+
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(options.stubPort()), 512);
+        server.setExecutor(handlers);
+        server.createContext("/v2/gateway/api/create", exchange -> handle(exchange, this::create));
+        server.createContext("/pay", exchange -> handle(exchange, this::pay));
+        server.start();
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        ipnScheduler.shutdownNow();
+        handlers.shutdownNow();
+    }
+
+    /**
+     * Chờ các IPN đã hẹn được gửi xong
+     */
+    public void awaitIpns() throws InterruptedException {
+        Thread.sleep(options.ipnDelayMs() + 1000L);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("created", created.get());
+        stats.put("failed", failed.get());
+        stats.put("invalidSignatures", invalidSignatures.get());
+        stats.put("paid", paid.get());
+        stats.put("declined", declined.get());
+        stats.put("ipnDelivered", ipnDelivered.get());
+        stats.put("ipnFailed", ipnFailed.get());
+        stats.put("abandoned", pendingPayments.size());
+        return stats;
+    }
+
+    // ===== API tạo thanh toán =====
+
+    private void create(HttpExchange exchange) throws IOException {
+        Map<String, Object> request;
+        try (InputStream body = exchange.getRequestBody()) {
+            request = objectMapper.readValue(body, MAP_TYPE);
+        }
+
+        sleep(options.stubLatencyMs() + (options.stubJitterMs() > 0
+                ? ThreadLocalRandom.current().nextInt(options.stubJitterMs() + 1) : 0));
+
+        if (ThreadLocalRandom.current().nextDouble() < options.stubErrorRate()) {
+            failed.incrementAndGet();
+            sendJson(exchange, 500, Map.of("resultCode", 99, "message", "Stub: lỗi hệ thống giả lập"));
+            return;
+        }
+
+        String rawSignature = "accessKey=" + options.accessKey()
+                + "&amount=" + value(request, "amount")
+                + "&extraData=" + value(request, "extraData")
+                + "&ipnUrl=" + value(request, "ipnUrl")
+                + "&orderId=" + value(request, "orderId")
+                + "&orderInfo=" + value(request, "orderInfo")
+                + "&partnerCode=" + options.partnerCode()
+                + "&redirectUrl=" + value(request, "redirectUrl")
+                + "&requestId=" + value(request, "requestId")
+                + "&requestType=" + value(request, "requestType");
+        if (!hmacSHA256(rawSignature).equals(value(request, "signature"))) {
+            invalidSignatures.incrementAndGet();
+            sendJson(exchange, 200, Map.of("resultCode", 99, "message", "Stub: sai chữ ký"));
+            return;
+        }
+
+        String orderId = value(request, "orderId");
+        pendingPayments.put(orderId, request);
+        created.incrementAndGet();
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("partnerCode", options.partnerCode());
+        response.put("orderId", orderId);
+        response.put("requestId", value(request, "requestId"));
+        response.put("amount", request.get("amount"));
+        response.put("responseTime", System.currentTimeMillis());
+        response.put("message", "Thành công.");
+        response.put("resultCode", 0);
+        response.put("payUrl", "http://localhost:" + options.stubPort() + "/pay?orderId="
+                + URLEncoder.encode(orderId, StandardCharsets.UTF_8));
+        sendJson(exchange, 200, response);
+    }
+
+    // ===== Người dùng thanh toán =====
+
+    private void pay(HttpExchange exchange) throws IOException {
+        String orderId = queryParam(exchange.getRequestURI(), "orderId");
+        Map<String, Object> request = orderId != null ? pendingPayments.remove(orderId) : null;
+        if (request == null) {
+            sendJson(exchange, 404, Map.of("resultCode", 42, "message", "Stub: không có giao dịch"));
+            return;
+        }
+
+        boolean decline = ThreadLocalRandom.current().nextDouble() < options.stubDeclineRate();
+        (decline ? declined : paid).incrementAndGet();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("partnerCode", options.partnerCode());
+        result.put("orderId", orderId);
+        result.put("requestId", value(request, "requestId"));
+        result.put("amount", request.get("amount"));
+        result.put("orderInfo", value(request, "orderInfo"));
+        result.put("orderType", "momo_wallet");
+        result.put("transId", transIds.incrementAndGet());
+        result.put("resultCode", decline ? 1006 : 0);
+        result.put("message", decline ? "Giao dịch bị từ chối bởi người dùng." : "Successful.");
+        result.put("payType", "qr");
+        result.put("responseTime", System.currentTimeMillis());
+        result.put("extraData", value(request, "extraData"));
+        result.put("signature", hmacSHA256(resultSignature(result)));
+
+        String ipnUrl = value(request, "ipnUrl");
+        ipnScheduler.schedule(() -> handlers.execute(() -> sendIpn(ipnUrl, result)),
+                options.ipnDelayMs(), TimeUnit.MILLISECONDS);
+
+        StringBuilder location = new StringBuilder(value(request, "redirectUrl")).append('?');
+        result.forEach((key, value) -> location.append(key).append('=')
+                .append(URLEncoder.encode(String.valueOf(value), StandardCharsets.UTF_8)).append('&'));
+        location.setLength(location.length() - 1);
+
+        exchange.getResponseHeaders().set("Location", location.toString());
+        exchange.sendResponseHeaders(302, -1);
+    }
+
+    private void sendIpn(String ipnUrl, Map<String, Object> result) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(ipnUrl))
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(result)))
+                    .build();
+            HttpResponse<String> response = ipnClient.send(request, HttpResponse.BodyHandlers.ofString());
+            Map<String, Object> ack = response.statusCode() == 200
+                    ? objectMapper.readValue(response.body(), MAP_TYPE)
+                    : Map.of();
+            if (Integer.valueOf(0).equals(ack.get("resultCode"))) {
+                ipnDelivered.incrementAndGet();
+            } else {
+                ipnFailed.incrementAndGet();
+            }
+        } catch (IOException e) {
+            ipnFailed.incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Chuỗi ký của kết quả thanh toán (cùng thứ tự với MomoPaymentService.verifySignature)
+     */
+    private String resultSignature(Map<String, Object> result) {
+        return "accessKey=" + options.accessKey()
+                + "&amount=" + result.get("amount")
+                + "&extraData=" + result.get("extraData")
+                + "&message=" + result.get("message")
+                + "&orderId=" + result.get("orderId")
+                + "&orderInfo=" + result.get("orderInfo")
+                + "&orderType=" + result.get("orderType")
+                + "&partnerCode=" + options.partnerCode()
+                + "&payType=" + result.get("payType")
+                + "&requestId=" + result.get("requestId")
+                + "&responseTime=" + result.get("responseTime")
+                + "&resultCode=" + result.get("resultCode")
+                + "&transId=" + result.get("transId");
+    }
+
+    // ===== Tiện ích =====
+
+    @FunctionalInterface
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) {
+        try {
+            handler.handle(exchange);
+        } catch (Exception e) {
+            try {
+                sendJson(exchange, 500, Map.of("resultCode", 99, "message", "Stub: " + e.getMessage()));
+            } catch (IOException ignored) {
+                // Client đã đóng kết nối hoặc header đã gửi
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String hmacSHA256(String data) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(options.secretKey().getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return HexFormat.of().formatHex(mac.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String value(Map<String, Object> map, String key) {
+        Object value = map.get(key);
+        return value != null ? value.toString() : "";
+    }
+
+    private static String queryParam(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.phanthanhthien.cmp3025.bookstore.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Scenario - Kịch bản load test đọc từ file JSON
+ *
+ * setup chạy một lần cho mỗi virtual user (đăng nhập), steps chạy lặp lại.
+ * Chuỗi {{ten}} được thay bằng biến: userIndex, baseUrl, các biến trong
+ * variables và giá trị lấy ra ở bước trước (extract).
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Scenario(
+        String name,
+        String description,
+        LinkedHashMap<String, String> variables,
+        List<Step> setup,
+        List<Step> steps) {
+
+    /**
+     * Một request trong kịch bản
+     *
+     * - json / form: body JSON hoặc form urlencoded
+     * - followRedirects: đi theo redirect như trình duyệt (POST -> GET với 301/302/303)
+     * - expectStatus: mã HTTP hợp lệ (mặc định 200)
+     * - expectUrl: URL cuối (hoặc header Location nếu không theo redirect) phải chứa chuỗi này
+     * - expectBody: body phải chứa chuỗi này
+     * - extract: biến -> "json:duong.dan" ("*" = phần tử ngẫu nhiên của mảng) hoặc "header:Ten"
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Step(
+            String name,
+            String method,
+            String path,
+            Map<String, String> headers,
+            JsonNode json,
+            Map<String, String> form,
+            boolean followRedirects,
+            List<Integer> expectStatus,
+            String expectUrl,
+            String expectBody,
+            Map<String, String> extract) {
+    }
+
+    public static Scenario load(Path path) throws IOException {
+        Scenario scenario = new ObjectMapper().readValue(path.toFile(), Scenario.class);
+        return new Scenario(
+                scenario.name() != null ? scenario.name() : path.getFileName().toString(),
+                scenario.description(),
+                scenario.variables() != null ? scenario.variables() : new LinkedHashMap<>(),
+                scenario.setup() != null ? scenario.setup() : List.of(),
+                scenario.steps() != null ? scenario.steps() : List.of());
+    }
+
+    /**
+     * Tên các bước theo thứ tự xuất hiện (dùng cho báo cáo)
+     */
+    public List<String> stepNames() {
+        List<String> names = new ArrayList<>();
+        for (Step step : setup) {
+            names.add(step.name());
+        }
+        for (Step step : steps) {
+            names.add(step.name());
+        }
+        return names;
+    }
+}
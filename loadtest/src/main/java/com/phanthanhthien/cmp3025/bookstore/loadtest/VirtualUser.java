@@ -0,0 +1,257 @@
+package com.phanthanhthien.cmp3025.bookstore.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.phanthanhthien.cmp3025.bookstore.loadtest.Scenario.Step;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * VirtualUser - Một người dùng giả lập chạy kịch bản
+ *
+ * Mỗi user có HttpClient và cookie riêng (session đăng nhập, giỏ hàng riêng)
+ * như một trình duyệt. Vòng lặp dừng ở bước lỗi đầu tiên rồi bắt đầu vòng mới.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class VirtualUser implements Runnable {
+
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\{(\\w+)}}");
+    private static final Set<Integer> REDIRECTS = Set.of(301, 302, 303, 307, 308);
+    private static final int MAX_REDIRECTS = 10;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final int index;
+    private final Scenario scenario;
+    private final LoadTestOptions options;
+    private final LoadStats stats;
+    private final long deadlineNanos;
+    private final ObjectMapper objectMapper;
+    private final HttpClient client;
+
+    private final Map<String, String> variables = new HashMap<>();
+
+    public VirtualUser(int index, Scenario scenario, LoadTestOptions options, LoadStats stats,
+            ExecutorService executor, long deadlineNanos, ObjectMapper objectMapper) {
+        this.index = index;
+        this.scenario = scenario;
+        this.options = options;
+        this.stats = stats;
+        this.deadlineNanos = deadlineNanos;
+        this.objectMapper = objectMapper;
+        this.client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager(null, CookiePolicy.ACCEPT_ALL))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+    }
+
+    @Override
+    public void run() {
+        variables.put("userIndex", String.valueOf(index));
+        variables.put("baseUrl", options.baseUrl());
+        scenario.variables().forEach((name, value) -> variables.put(name, resolve(value)));
+
+        if (!runSteps(scenario.setup())) {
+            stats.setupFailed();
+            return;
+        }
+
+        int iteration = 0;
+        while (System.nanoTime() < deadlineNanos
+                && (options.iterations() <= 0 || iteration < options.iterations())
+                && !Thread.currentThread().isInterrupted()) {
+            stats.iterationCompleted(runSteps(scenario.steps()));
+            iteration++;
+        }
+    }
+
+    private boolean runSteps(List<Step> steps) {
+        for (Step step : steps) {
+            if (!execute(step)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean execute(Step step) {
+        long start = System.nanoTime();
+        String error;
+        try {
+            Result result = send(step);
+            error = check(step, result);
+            if (error == null) {
+                error = extract(step, result);
+            }
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        stats.record(step.name(), System.nanoTime() - start, error);
+        return error == null;
+    }
+
+    // ===== Gửi request =====
+
+    private record Result(int status, URI uri, HttpResponse<String> response) {
+    }
+
+    private Result send(Step step) throws IOException, InterruptedException {
+        String path = resolve(step.path());
+        URI uri = URI.create(path.startsWith("http") ? path : options.baseUrl() + path);
+        String method = step.method() != null ? step.method().toUpperCase() : "GET";
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT);
+        if (step.headers() != null) {
+            step.headers().forEach((name, value) -> builder.header(name, resolve(value)));
+        }
+
+        HttpRequest.BodyPublisher body = HttpRequest.BodyPublishers.noBody();
+        if (step.json() != null && !step.json().isNull()) {
+            builder.header("Content-Type", "application/json");
+            body = HttpRequest.BodyPublishers.ofString(resolve(objectMapper.writeValueAsString(step.json())),
+                    StandardCharsets.UTF_8);
+        } else if (step.form() != null) {
+            StringBuilder form = new StringBuilder();
+            step.form().forEach((name, value) -> {
+                if (!form.isEmpty()) {
+                    form.append('&');
+                }
+                form.append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+                        .append(URLEncoder.encode(resolve(value), StandardCharsets.UTF_8));
+            });
+            builder.header("Content-Type", "application/x-www-form-urlencoded");
+            body = HttpRequest.BodyPublishers.ofString(form.toString(), StandardCharsets.UTF_8);
+        }
+
+        HttpResponse<String> response = client.send(builder.method(method, body).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+        // Theo redirect như trình duyệt: 301/302/303 chuyển thành GET
+        int hops = 0;
+        while (step.followRedirects() && REDIRECTS.contains(response.statusCode()) && hops++ < MAX_REDIRECTS) {
+            String location = response.headers().firstValue("Location").orElse(null);
+            if (location == null) {
+                break;
+            }
+            uri = uri.resolve(location);
+            HttpRequest.Builder next = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT);
+            int status = response.statusCode();
+            if (status == 307 || status == 308) {
+                next.method(method, body);
+            } else {
+                next.GET();
+            }
+            response = client.send(next.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        }
+        return new Result(response.statusCode(), uri, response);
+    }
+
+    // ===== Kiểm tra và lấy biến =====
+
+    private String check(Step step, Result result) {
+        List<Integer> expected = step.expectStatus() != null ? step.expectStatus() : List.of(200);
+        String location = result.response().headers().firstValue("Location").orElse(null);
+        if (!expected.contains(result.status())) {
+            return "HTTP " + result.status() + (location != null ? " -> " + stripQuery(location) : "");
+        }
+        if (step.expectUrl() != null) {
+            String actual = step.followRedirects() ? result.uri().toString() : location;
+            if (actual == null || !actual.contains(resolve(step.expectUrl()))) {
+                return "Chuyển tới " + (actual != null ? stripQuery(actual) : "(không có Location)");
+            }
+        }
+        if (step.expectBody() != null && !result.response().body().contains(resolve(step.expectBody()))) {
+            return "Body không chứa " + step.expectBody();
+        }
+        return null;
+    }
+
+    private String extract(Step step, Result result) throws IOException {
+        if (step.extract() == null) {
+            return null;
+        }
+        JsonNode json = null;
+        for (Map.Entry<String, String> entry : step.extract().entrySet()) {
+            String source = entry.getValue();
+            String value = null;
+            if (source.startsWith("json:")) {
+                if (json == null) {
+                    json = objectMapper.readTree(result.response().body());
+                }
+                value = jsonValue(json, source.substring(5));
+            } else if (source.startsWith("header:")) {
+                value = result.response().headers().firstValue(source.substring(7)).orElse(null);
+            }
+            if (value == null || value.isEmpty()) {
+                return "Không lấy được " + entry.getKey();
+            }
+            variables.put(entry.getKey(), value);
+        }
+        return null;
+    }
+
+    /**
+     * Đi theo đường dẫn a.b.0.c; "*" lấy phần tử ngẫu nhiên của mảng
+     */
+    private static String jsonValue(JsonNode node, String path) {
+        for (String segment : path.split("\\.")) {
+            if (node == null || node.isMissingNode() || node.isNull()) {
+                return null;
+            }
+            if (node.isArray()) {
+                if (node.isEmpty()) {
+                    return null;
+                }
+                int i = "*".equals(segment)
+                        ? ThreadLocalRandom.current().nextInt(node.size())
+                        : Integer.parseInt(segment);
+                node = node.get(i);
+            } else {
+                node = node.get(segment);
+            }
+        }
+        return node != null && !node.isNull() && !node.isMissingNode() ? node.asText() : null;
+    }
+
+    private String resolve(String text) {
+        if (text == null || !text.contains("{{")) {
+            return text;
+        }
+        Matcher matcher = VARIABLE.matcher(text);
+        StringBuilder result = new StringBuilder();
+        while (matcher.find()) {
+            String value = variables.get(matcher.group(1));
+            matcher.appendReplacement(result, Matcher.quoteReplacement(value != null ? value : matcher.group()));
+        }
+        matcher.appendTail(result);
+        return result.toString();
+    }
+
+    private static String stripQuery(String url) {
+        int q = url.indexOf('?');
+        return q >= 0 ? url.substring(0, q) : url;
+    }
+}
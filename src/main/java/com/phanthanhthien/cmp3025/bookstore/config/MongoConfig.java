@@ -0,0 +1,24 @@
+package com.phanthanhthien.cmp3025.bookstore.config;
+
+import com.phanthanhthien.cmp3025.bookstore.monitoring.MongoQueryCounter;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * MongoConfig - Cấu hình bổ sung cho MongoClient
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Configuration
+public class MongoConfig {
+
+    /**
+     * Gắn CommandListener đếm số truy vấn MongoDB cho mỗi request
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoQueryCounterCustomizer(MongoQueryCounter mongoQueryCounter) {
+        return builder -> builder.addCommandListener(mongoQueryCounter);
+    }
+}
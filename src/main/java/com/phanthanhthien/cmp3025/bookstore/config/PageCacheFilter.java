@@ -0,0 +1,156 @@
+package com.phanthanhthien.cmp3025.bookstore.config;
+
+import com.phanthanhthien.cmp3025.bookstore.services.PageCache;
+import com.phanthanhthien.cmp3025.bookstore.services.PageCache.CachedPage;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.support.SessionFlashMapManager;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * PageCacheFilter - Trả HTML từ PageCache cho khách chưa đăng nhập
+ *
+ * Chạy sau Spring Security (filter @Component có thứ tự thấp nhất) nên đã
+ * biết request là của khách hay người dùng đăng nhập. Người dùng đăng nhập,
+ * request có flash message, hoặc response tạo session / cookie không được cache.
+ *
+ * Response có Vary: Accept-Encoding, ETag riêng cho bản gốc / gzip và
+ * Cache-Control: no-cache để trình duyệt xác thực lại bằng If-None-Match (304).
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class PageCacheFilter extends OncePerRequestFilter {
+
+    private static final String FLASH_MAPS_ATTRIBUTE = SessionFlashMapManager.class.getName() + ".FLASH_MAPS";
+
+    private static final String CACHE_STATUS_HEADER = "X-Page-Cache";
+
+    @Autowired
+    private PageCache pageCache;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain)
+            throws ServletException, IOException {
+
+        if (!isAnonymous() || hasFlashMessages(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String key = request.getServletPath()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "");
+
+        CachedPage page = pageCache.get(key);
+        if (page != null) {
+            response.setHeader(CACHE_STATUS_HEADER, "HIT");
+            writePage(page, request, response);
+            return;
+        }
+
+        long version = pageCache.version();
+        boolean hadSession = request.getSession(false) != null;
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, wrapper);
+
+        if (isCacheableResponse(wrapper) && (hadSession || request.getSession(false) == null)) {
+            page = pageCache.store(key, wrapper.getContentType(), wrapper.getContentAsByteArray(), version);
+            response.setHeader(CACHE_STATUS_HEADER, "MISS");
+            writePage(page, request, response);
+        } else {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * Chỉ xét GET tới các path được cấu hình
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"GET".equals(request.getMethod()) || !pageCache.isCacheable(request.getServletPath());
+    }
+
+    private boolean isAnonymous() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication == null || authentication instanceof AnonymousAuthenticationToken;
+    }
+
+    private boolean hasFlashMessages(HttpServletRequest request) {
+        HttpSession session = request.getSession(false);
+        if (session == null) {
+            return false;
+        }
+        Object flashMaps = session.getAttribute(FLASH_MAPS_ATTRIBUTE);
+        return flashMaps instanceof Collection<?> collection && !collection.isEmpty();
+    }
+
+    private boolean isCacheableResponse(ContentCachingResponseWrapper wrapper) {
+        String contentType = wrapper.getContentType();
+        return wrapper.getStatus() == HttpServletResponse.SC_OK
+                && contentType != null && contentType.startsWith("text/html")
+                && !wrapper.containsHeader(HttpHeaders.SET_COOKIE)
+                && !wrapper.isCommitted();
+    }
+
+    private void writePage(CachedPage page, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? page.gzipEtag() : page.etag();
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        response.setHeader(HttpHeaders.ETAG, etag);
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.contains(page.etag()) || ifNoneMatch.contains(page.gzipEtag()))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = gzip ? page.gzipBody() : page.body();
+        response.setContentType(page.contentType());
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * Accept-Encoding có gzip và không bị tắt bằng q=0
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            if (tokens[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < tokens.length; i++) {
+                    String param = tokens[i].trim().replace(" ", "");
+                    if (param.equals("q=0") || param.matches("q=0\\.0*")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+}
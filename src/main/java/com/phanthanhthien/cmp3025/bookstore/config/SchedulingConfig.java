@@ -0,0 +1,20 @@
+package com.phanthanhthien.cmp3025.bookstore.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * SchedulingConfig - Bật @Scheduled và @Async cho các tác vụ nền (worker outbox thanh toán)
+ *
+ * Khi spring.threads.virtual.enabled=true, Spring Boot chạy @Scheduled,
+ * @Async và request async (StreamingResponseBody) trên virtual thread.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Configuration
+@EnableAsync
+@EnableScheduling
+public class SchedulingConfig {
+}
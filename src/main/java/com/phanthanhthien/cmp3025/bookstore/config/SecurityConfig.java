@@ -2,6 +2,7 @@ package com.phanthanhthien.cmp3025.bookstore.config;
 
 import com.phanthanhthien.cmp3025.bookstore.security.JwtAuthFilter;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -18,6 +19,9 @@ import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * SecurityConfig - Cấu hình Spring Security
  * 
@@ -44,6 +48,10 @@ public class SecurityConfig {
         @Autowired
         private JwtAuthFilter jwtAuthFilter;
 
+        // Số tài khoản loadtest1..N tạo thêm cho load test (profile loadtest)
+        @Value("${loadtest.users:0}")
+        private int loadtestUsers;
+
         /**
          * Cấu hình PasswordEncoder sử dụng BCrypt
          * 
@@ -79,7 +87,21 @@ public class SecurityConfig {
                                 .roles("ADMIN", "USER")
                                 .build();
 
-                return new InMemoryUserDetailsManager(user, admin);
+                List<UserDetails> users = new ArrayList<>(List.of(user, admin));
+
+                // Tài khoản load test: loadtest1..N / loadtest (mỗi virtual user một giỏ hàng)
+                if (loadtestUsers > 0) {
+                        String password = passwordEncoder().encode("loadtest");
+                        for (int i = 1; i <= loadtestUsers; i++) {
+                                users.add(User.builder()
+                                                .username("loadtest" + i)
+                                                .password(password)
+                                                .roles("USER")
+                                                .build());
+                        }
+                }
+
+                return new InMemoryUserDetailsManager(users);
         }
 
         /**
@@ -113,6 +135,9 @@ public class SecurityConfig {
                                                 .permitAll()
                                                 .requestMatchers("/error/**").permitAll()
 
+                                                // Prometheus scrape - MetricsController tự kiểm tra token hoặc quyền ADMIN
+                                                .requestMatchers(HttpMethod.GET, "/metrics").permitAll()
+
                                                 // OAuth2 endpoints
                                                 .requestMatchers("/oauth2/**", "/login/oauth2/**").permitAll()
 
@@ -23,6 +23,8 @@ public final class AppConstants {
     // Pagination
     public static final int DEFAULT_PAGE_SIZE = 10;
     public static final int DEFAULT_PAGE_NUMBER = 0;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final String DEFAULT_BOOK_SORT = "id";
 
     // Validation Messages
     public static final String MSG_REQUIRED = "Trường này là bắt buộc";
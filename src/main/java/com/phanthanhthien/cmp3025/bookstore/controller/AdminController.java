@@ -1,13 +1,35 @@
 package com.phanthanhthien.cmp3025.bookstore.controller;
 
+import com.phanthanhthien.cmp3025.bookstore.monitoring.JfrRecordingService;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.MongoQueryCounter;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.RequestMetrics;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.VirtualThreadPinningMonitor;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.UserRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.VoucherRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.CatalogCache;
+import com.phanthanhthien.cmp3025.bookstore.services.PageCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * AdminController - Quản trị hệ thống
@@ -30,6 +52,24 @@ public class AdminController {
     @Autowired
     private VoucherRepository voucherRepository;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private PageCache pageCache;
+
+    @Autowired
+    private VirtualThreadPinningMonitor pinningMonitor;
+
+    @Autowired
+    private MongoQueryCounter mongoQueryCounter;
+
+    @Autowired
+    private RequestMetrics requestMetrics;
+
+    @Autowired
+    private JfrRecordingService jfrRecordingService;
+
     /**
      * Trang quản lý ngườ dùng
      */
@@ -59,6 +99,110 @@ public class AdminController {
         return "admin/dashboard";
     }
 
+    /**
+     * Dữ liệu biểu đồ dashboard: p50 / p99 / req/s theo thời gian và các route chậm nhất
+     */
+    @GetMapping("/quantri/metrics/timeline")
+    @ResponseBody
+    public Map<String, Object> metricsTimeline() {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("timeline", requestMetrics.getTimeline());
+        data.put("slowestRoutes", requestMetrics.getSlowestRoutes(10));
+        return data;
+    }
+
+    /**
+     * Thống kê catalog cache và page cache (hit / miss / eviction)
+     */
+    @GetMapping("/quantri/cache")
+    @ResponseBody
+    public Map<String, Object> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(catalogCache.getStats());
+        stats.put("pages", pageCache.getStats());
+        return stats;
+    }
+
+    /**
+     * Chế độ thread và các chỗ virtual thread bị pin
+     */
+    @GetMapping("/quantri/threads")
+    @ResponseBody
+    public Map<String, Object> threadStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", pinningMonitor.isVirtualThreadMode());
+        stats.put("liveThreads", Thread.activeCount());
+        stats.put("pinned", pinningMonitor.getPinnedCounts());
+        return stats;
+    }
+
+    /**
+     * Truy vấn MongoDB theo route, theo collection / lệnh và các lệnh chậm gần đây
+     */
+    @GetMapping("/quantri/mongo")
+    public String mongoStats(Model model) {
+        model.addAttribute("pageTitle", "Truy vấn MongoDB");
+        model.addAttribute("currentPage", "quantri");
+        model.addAttribute("routes", mongoQueryCounter.getRouteStats());
+        model.addAttribute("commands", mongoQueryCounter.getCommandStats());
+        model.addAttribute("slowCommands", mongoQueryCounter.getSlowCommands());
+        return "admin/mongo";
+    }
+
+    /**
+     * Metric MongoDB dạng Micrometer (mongodb.driver.commands, mongodb.requests.*)
+     */
+    @GetMapping("/quantri/mongo/metrics")
+    @ResponseBody
+    public List<Map<String, Object>> mongoMetrics() {
+        return mongoQueryCounter.getMetrics();
+    }
+
+    /**
+     * Trạng thái JFR recording
+     */
+    @GetMapping("/quantri/jfr")
+    @ResponseBody
+    public Map<String, Object> jfrStatus() {
+        return jfrRecordingService.getStatus();
+    }
+
+    /**
+     * Bắt đầu JFR recording (settings: default hoặc profile)
+     */
+    @PostMapping("/quantri/jfr/start")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> startJfr(@RequestParam(defaultValue = "default") String settings) {
+        try {
+            return ResponseEntity.ok(jfrRecordingService.start(settings));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of("error", "Không bắt đầu được JFR: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Dừng JFR recording và tải file .jfr (mở bằng JDK Mission Control)
+     */
+    @PostMapping("/quantri/jfr/stop")
+    public ResponseEntity<Resource> stopJfr() {
+        Path file;
+        try {
+            file = jfrRecordingService.stop();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        if (!Files.exists(file)) {
+            return ResponseEntity.noContent().build();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDisposition(ContentDisposition.attachment().filename(file.getFileName().toString()).build());
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(file));
+    }
+
     /**
      * API Documentation Page
      */
@@ -3,16 +3,19 @@ package com.phanthanhthien.cmp3025.bookstore.controller;
 import com.phanthanhthien.cmp3025.bookstore.entities.Order;
 import com.phanthanhthien.cmp3025.bookstore.repository.OrderRepository;
 import com.phanthanhthien.cmp3025.bookstore.services.ExcelExportService;
+import com.phanthanhthien.cmp3025.bookstore.services.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
-import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -28,39 +31,34 @@ public class AdminOrderController {
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderService orderService;
+
     @Autowired
     private ExcelExportService excelExportService;
 
+    private static final int ORDER_PAGE_SIZE = 20;
+
     /**
-     * Danh sách tất cả đơn hàng
+     * Danh sách đơn hàng (phân trang, mới nhất trước)
      */
     @GetMapping({ "", "/" })
-    public String listOrders(Model model) {
-        List<Order> orders = orderRepository.findAll();
-
-        // Sắp xếp theo ngày tạo mới nhất
-        orders.sort((a, b) -> {
-            if (a.getCreatedAt() == null)
-                return 1;
-            if (b.getCreatedAt() == null)
-                return -1;
-            return b.getCreatedAt().compareTo(a.getCreatedAt());
-        });
-
-        model.addAttribute("orders", orders);
+    public String listOrders(Model model, @RequestParam(defaultValue = "0") int page) {
+        Slice<Order> orders = orderService.findPage(page, ORDER_PAGE_SIZE);
+
+        model.addAttribute("orders", orders.getContent());
+        model.addAttribute("pageNumber", orders.getNumber());
+        model.addAttribute("hasNextPage", orders.hasNext());
+        model.addAttribute("hasPreviousPage", orders.hasPrevious());
         model.addAttribute("pageTitle", "Quản lý Đơn hàng");
         model.addAttribute("currentPage", "donhang");
 
-        // Thống kê
-        long totalOrders = orders.size();
-        long pendingOrders = orders.stream().filter(o -> "PENDING".equals(o.getPaymentStatus())).count();
-        long successOrders = orders.stream().filter(o -> "SUCCESS".equals(o.getPaymentStatus())).count();
-        long completedOrders = orders.stream().filter(o -> "COMPLETED".equals(o.getOrderStatus())).count();
-
-        model.addAttribute("totalOrders", totalOrders);
-        model.addAttribute("pendingOrders", pendingOrders);
-        model.addAttribute("successOrders", successOrders);
-        model.addAttribute("completedOrders", completedOrders);
+        // Thống kê (estimatedCount + ba truy vấn count dùng index)
+        Map<String, Long> stats = orderService.getStatistics();
+        model.addAttribute("totalOrders", stats.get("totalOrders"));
+        model.addAttribute("pendingOrders", stats.get("pendingOrders"));
+        model.addAttribute("successOrders", stats.get("successOrders"));
+        model.addAttribute("completedOrders", stats.get("completedOrders"));
 
         return "quantri/donhang/index";
     }
@@ -116,30 +114,26 @@ public class AdminOrderController {
             case "SHIPPED" -> "Đang giao";
             case "COMPLETED" -> "Hoàn thành";
             case "CANCELLED" -> "Đã hủy";
+            case "REFUND_REQUIRED" -> "Cần hoàn tiền";
             default -> status;
         };
     }
 
     /**
-     * Xuất danh sách đơn hàng ra Excel
+     * Xuất danh sách đơn hàng ra Excel (stream thẳng ra response)
      */
     @GetMapping("/xuat-excel")
-    public ResponseEntity<byte[]> exportOrdersToExcel() {
-        try {
-            byte[] excelBytes = excelExportService.exportOrdersToExcel();
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.setContentDispositionFormData(
-                    "attachment",
-                    java.net.URLEncoder.encode("danh-sach-don-hang.xlsx", java.nio.charset.StandardCharsets.UTF_8)
-            );
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(excelBytes);
-        } catch (Exception e) {
-            return ResponseEntity.status(500).build();
-        }
+    public ResponseEntity<StreamingResponseBody> exportOrdersToExcel() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.setContentDispositionFormData(
+                "attachment",
+                java.net.URLEncoder.encode("danh-sach-don-hang.xlsx", java.nio.charset.StandardCharsets.UTF_8)
+        );
+
+        StreamingResponseBody body = excelExportService::exportOrdersToExcel;
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 }
@@ -1,9 +1,13 @@
 package com.phanthanhthien.cmp3025.bookstore.controller;
 
+import com.phanthanhthien.cmp3025.bookstore.constants.AppConstants;
+import com.phanthanhthien.cmp3025.bookstore.dto.CursorPage;
 import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.entities.Category;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.BookService;
+import com.phanthanhthien.cmp3025.bookstore.services.CatalogCache;
 import com.phanthanhthien.cmp3025.bookstore.services.CounterService;
 import com.phanthanhthien.cmp3025.bookstore.services.ExcelExportService;
 import jakarta.validation.Valid;
@@ -15,6 +19,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDateTime;
@@ -38,26 +43,40 @@ public class BookController {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private BookService bookService;
+
     @Autowired
     private CounterService counterService;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     /**
-     * Xem danh sách tất cả sách
+     * Xem danh sách sách (phân trang theo con trỏ)
      */
     @GetMapping({ "", "/" })
-    public String listBooks(Model model) {
-        List<Book> books = bookRepository.findAll();
-
-        // Tính tổng số lượng tồn kho
-        int totalStock = books.stream()
-                .mapToInt(book -> book.getStock() != null ? book.getStock() : 0)
-                .sum();
+    public String listBooks(Model model,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            RedirectAttributes redirectAttributes) {
+        CursorPage<Book> page;
+        try {
+            page = bookService.findPage(sort, cursor, AppConstants.DEFAULT_PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+            return "redirect:/sach";
+        }
 
         model.addAttribute("pageTitle", "Quản lý Sách");
         model.addAttribute("currentPage", "sach");
-        model.addAttribute("books", books);
+        model.addAttribute("books", page.getItems());
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("sort", page.getSort());
+        model.addAttribute("isPaged", true);
+        model.addAttribute("isFirstPage", cursor == null || cursor.isBlank());
         model.addAttribute("totalBooks", bookRepository.count());
-        model.addAttribute("totalStock", totalStock);
+        model.addAttribute("totalStock", bookService.sumStock());
         return "sach/index";
     }
 
@@ -70,8 +89,7 @@ public class BookController {
         model.addAttribute("currentPage", "sach");
         model.addAttribute("keyword", q);
 
-        List<Book> searchResults = bookRepository
-                .findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(q, q);
+        List<Book> searchResults = bookService.search(q);
 
         // Tính tổng số lượng tồn kho trong kết quả tìm kiếm
         int totalStock = searchResults.stream()
@@ -93,7 +111,7 @@ public class BookController {
         model.addAttribute("pageTitle", "Thêm sách mới");
         model.addAttribute("currentPage", "sach");
         model.addAttribute("book", new Book());
-        model.addAttribute("categories", categoryRepository.findAll());
+        model.addAttribute("categories", catalogCache.findAllCategories());
         return "sach/form";
     }
 
@@ -110,7 +128,7 @@ public class BookController {
         if (result.hasErrors()) {
             model.addAttribute("pageTitle", "Thêm sách mới");
             model.addAttribute("currentPage", "sach");
-            model.addAttribute("categories", categoryRepository.findAll());
+            model.addAttribute("categories", catalogCache.findAllCategories());
             return "sach/form";
         }
 
@@ -142,7 +160,7 @@ public class BookController {
         model.addAttribute("pageTitle", "Sửa thông tin sách");
         model.addAttribute("currentPage", "sach");
         model.addAttribute("book", bookOpt.get());
-        model.addAttribute("categories", categoryRepository.findAll());
+        model.addAttribute("categories", catalogCache.findAllCategories());
         model.addAttribute("isEdit", true);
 
         return "sach/form";
@@ -162,7 +180,7 @@ public class BookController {
         if (result.hasErrors()) {
             model.addAttribute("pageTitle", "Sửa thông tin sách");
             model.addAttribute("currentPage", "sach");
-            model.addAttribute("categories", categoryRepository.findAll());
+            model.addAttribute("categories", catalogCache.findAllCategories());
             model.addAttribute("isEdit", true);
             return "sach/form";
         }
@@ -210,7 +228,7 @@ public class BookController {
     @GetMapping("/chi-tiet/{id}")
     public String viewBook(@PathVariable Long id, Model model,
             RedirectAttributes redirectAttributes) {
-        Optional<Book> bookOpt = bookRepository.findById(id);
+        Optional<Book> bookOpt = catalogCache.findBookById(id);
 
         if (bookOpt.isEmpty()) {
             redirectAttributes.addFlashAttribute("errorMessage",
@@ -224,7 +242,7 @@ public class BookController {
 
         // Lấy thông tin danh mục nếu có
         if (bookOpt.get().getCategoryId() != null) {
-            categoryRepository.findById(bookOpt.get().getCategoryId())
+            catalogCache.findCategoryById(bookOpt.get().getCategoryId())
                     .ifPresent(cat -> model.addAttribute("category", cat));
         }
 
@@ -235,27 +253,22 @@ public class BookController {
     private ExcelExportService excelExportService;
 
     /**
-     * Xuất danh sách sách ra file Excel
+     * Xuất danh sách sách ra file Excel (stream thẳng ra response)
      */
     @GetMapping("/xuat-excel")
-    public ResponseEntity<byte[]> exportToExcel() {
-        try {
-            byte[] excelData = excelExportService.exportBooksToExcel();
-
-            String filename = "DanhSachSach_" +
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType(
-                    "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
-            headers.setContentDispositionFormData("attachment", filename);
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .body(excelData);
-        } catch (Exception e) {
-            return ResponseEntity.internalServerError().build();
-        }
+    public ResponseEntity<StreamingResponseBody> exportToExcel() {
+        String filename = "DanhSachSach_" +
+                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".xlsx";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        headers.setContentDispositionFormData("attachment", filename);
+
+        StreamingResponseBody body = excelExportService::exportBooksToExcel;
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(body);
     }
 
 }
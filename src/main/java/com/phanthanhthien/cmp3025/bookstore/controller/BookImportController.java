@@ -0,0 +1,82 @@
+package com.phanthanhthien.cmp3025.bookstore.controller;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.ImportJob;
+import com.phanthanhthien.cmp3025.bookstore.services.BookImportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BookImportController - Nhập sách hàng loạt từ file CSV / XLSX (Admin)
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Slf4j
+@Controller
+@RequestMapping("/quantri/import")
+public class BookImportController {
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    /**
+     * Upload file và bắt đầu job nhập sách (chạy nền)
+     */
+    @PostMapping("/sach")
+    public String importBooks(@RequestParam("file") MultipartFile file,
+            RedirectAttributes redirectAttributes) {
+        try {
+            ImportJob job = bookImportService.startImport(file);
+            redirectAttributes.addFlashAttribute("successMessage",
+                    "Đã nhận file " + job.getFileName() + ", đang nhập sách nền (mã job: " + job.getId() + ")");
+        } catch (IllegalArgumentException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", e.getMessage());
+        } catch (IOException e) {
+            log.error("Không lưu được file import: {}", e.getMessage());
+            redirectAttributes.addFlashAttribute("errorMessage", "Không lưu được file: " + e.getMessage());
+        }
+        return "redirect:/sach";
+    }
+
+    /**
+     * Các job gần nhất
+     */
+    @GetMapping({ "", "/" })
+    @ResponseBody
+    public List<ImportJob> recentJobs() {
+        return bookImportService.recentJobs();
+    }
+
+    /**
+     * Tiến độ của một job
+     */
+    @GetMapping("/{id}")
+    @ResponseBody
+    public ResponseEntity<ImportJob> jobStatus(@PathVariable String id) {
+        return bookImportService.findJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Chạy lại job bị lỗi từ dòng đã ghi xong
+     */
+    @PostMapping("/{id}/tiep-tuc")
+    @ResponseBody
+    public ResponseEntity<?> resumeJob(@PathVariable String id) {
+        try {
+            return ResponseEntity.ok(bookImportService.resume(id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
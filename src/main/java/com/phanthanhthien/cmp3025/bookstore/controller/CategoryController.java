@@ -4,6 +4,7 @@ import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.entities.Category;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.CategoryService;
 import com.phanthanhthien.cmp3025.bookstore.services.CounterService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -39,6 +40,9 @@ public class CategoryController {
     @Autowired
     private CounterService counterService;
 
+    @Autowired
+    private CategoryService categoryService;
+
     /**
      * Xem danh sách tất cả danh mục
      */
@@ -51,8 +55,8 @@ public class CategoryController {
 
         model.addAttribute("pageTitle", "Quản lý Danh mục");
         model.addAttribute("currentPage", "danhmuc");
-        model.addAttribute("categories", categories);
-        model.addAttribute("totalCategories", categoryRepository.count());
+        model.addAttribute("categories", categoryService.convertToDTOList(categories));
+        model.addAttribute("totalCategories", categories.size());
 
         log.info("Model attributes - categories: {}, totalCategories: {}",
                 model.containsAttribute("categories") ? categories.size() : "NULL",
@@ -3,9 +3,12 @@ package com.phanthanhthien.cmp3025.bookstore.controller;
 import com.phanthanhthien.cmp3025.bookstore.entities.Cart;
 import com.phanthanhthien.cmp3025.bookstore.entities.Order;
 import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.CheckoutStepEvent;
 import com.phanthanhthien.cmp3025.bookstore.repository.OrderRepository;
 import com.phanthanhthien.cmp3025.bookstore.services.CartService;
 import com.phanthanhthien.cmp3025.bookstore.services.MomoPaymentService;
+import com.phanthanhthien.cmp3025.bookstore.services.PaymentEventService;
+import com.phanthanhthien.cmp3025.bookstore.services.PaymentEventWorker;
 import com.phanthanhthien.cmp3025.bookstore.services.VoucherService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,6 +46,12 @@ public class CheckoutController {
     @Autowired
     private VoucherService voucherService;
 
+    @Autowired
+    private PaymentEventService paymentEventService;
+
+    @Autowired
+    private PaymentEventWorker paymentEventWorker;
+
     /**
      * Trang thanh toán
      */
@@ -90,7 +99,10 @@ public class CheckoutController {
 
         try {
             String userId = authentication.getName();
+            CheckoutStepEvent cartEvent = CheckoutStepEvent.start("CART_LOAD", userId);
             Cart cart = cartService.getCartByUserId(userId);
+            cartEvent.itemCount = cart.getItems().size();
+            cartEvent.finish(true);
 
             if (cart.getItems().isEmpty()) {
                 redirectAttributes.addFlashAttribute("error", "Giỏ hàng trống!");
@@ -120,11 +132,18 @@ public class CheckoutController {
 
             if (voucherCode != null && !voucherCode.trim().isEmpty()) {
                 logger.info("🔍 Validating voucher: {}", voucherCode);
+                CheckoutStepEvent voucherEvent = CheckoutStepEvent.start("VOUCHER_VALIDATION", userId);
+                voucherEvent.voucherCode = voucherCode;
+                voucherEvent.itemCount = cart.getItems().size();
                 // Validate voucher
                 Optional<Voucher> voucherOpt = voucherService.validateVoucher(voucherCode, totalAmount);
                 if (voucherOpt.isPresent()) {
                     voucher = voucherOpt.get();
                     discountAmount = voucherService.calculateDiscount(voucher, totalAmount);
+                }
+                voucherEvent.finish(voucher != null);
+
+                if (voucher != null) {
                     logger.info("✅ Voucher valid! Code: {}, Discount: {}", voucherCode, discountAmount);
                 } else {
                     logger.warn("❌ Voucher invalid: {}", voucherCode);
@@ -139,6 +158,8 @@ public class CheckoutController {
             logger.info("💰 Final Amount: {} (Total: {} - Discount: {})", finalAmount, totalAmount, discountAmount);
 
             // Tạo đơn hàng
+            CheckoutStepEvent saveEvent = CheckoutStepEvent.start("ORDER_SAVE", userId);
+            saveEvent.itemCount = cart.getItems().size();
             Order order = new Order(userId, userId, cart.getItems(), totalAmount);
             order.setReceiverName(receiverName);
             order.setReceiverPhone(receiverPhone);
@@ -150,20 +171,39 @@ public class CheckoutController {
                 order.setDiscountAmount(discountAmount);
                 order.setFinalAmount(finalAmount);
 
-                // Tăng số lần sử dụng voucher
-                voucherService.incrementUsage(voucher.getId());
+                // Sử dụng voucher (atomic, kiểm tra lại giới hạn lượt dùng trong DB)
+                if (!voucherService.incrementUsage(voucher.getId())) {
+                    saveEvent.voucherCode = voucher.getCode();
+                    saveEvent.finish(false);
+                    logger.warn("❌ Voucher đã hết lượt sử dụng: {}", voucher.getCode());
+                    redirectAttributes.addFlashAttribute("error", "Mã voucher đã hết lượt sử dụng!");
+                    return "redirect:/thanhtoan";
+                }
             } else {
                 order.setFinalAmount(totalAmount);
             }
 
             order.setPaymentMethod("MOMO");
             order = orderRepository.save(order);
+            saveEvent.orderId = order.getId();
+            saveEvent.voucherCode = order.getVoucherCode();
+            saveEvent.finish(true);
 
             logger.info("📦 Tạo đơn hàng: {} - Người nhận: {} - Tổng tiền: {} - Giảm: {} - Thành tiền: {}",
                     order.getId(), receiverName, totalAmount, discountAmount, finalAmount);
 
             // Gọi API MoMo
-            Map<String, Object> momoResponse = momoPaymentService.createPayment(order);
+            CheckoutStepEvent gatewayEvent = CheckoutStepEvent.start("GATEWAY_CALL", userId);
+            gatewayEvent.orderId = order.getId();
+            gatewayEvent.itemCount = order.getItems() != null ? order.getItems().size() : 0;
+            Map<String, Object> momoResponse;
+            try {
+                momoResponse = momoPaymentService.createPayment(order);
+            } catch (RuntimeException e) {
+                gatewayEvent.finish(false);
+                throw e;
+            }
+            gatewayEvent.finish(momoResponse != null && Integer.valueOf(0).equals(momoResponse.get("resultCode")));
 
             if (momoResponse != null && momoResponse.get("resultCode") != null) {
                 int resultCode = (int) momoResponse.get("resultCode");
@@ -221,6 +261,9 @@ public class CheckoutController {
 
     /**
      * IPN (Instant Payment Notification) từ MoMo
+     *
+     * Chỉ xác thực chữ ký rồi ghi vào outbox payment_events (một lệnh insert)
+     * và trả lời MoMo ngay; PaymentEventWorker xử lý đơn hàng / tồn kho ở nền.
      */
     @PostMapping("/momo/notify")
     @ResponseBody
@@ -228,17 +271,28 @@ public class CheckoutController {
         logger.info("📥 MoMo IPN: {}", payload);
 
         try {
+            Map<String, String> params = new HashMap<>();
+            payload.forEach((key, value) -> params.put(key, value != null ? value.toString() : ""));
+            if (!momoPaymentService.verifySignature(params, params.get("signature"))) {
+                logger.warn("⚠️ IPN sai chữ ký - orderId: {}", payload.get("orderId"));
+                return Map.of("resultCode", 1, "message", "Invalid signature");
+            }
+
             String orderId = (String) payload.get("orderId");
             String requestId = (String) payload.get("requestId");
-            int resultCode = (int) payload.get("resultCode");
+            int resultCode = Integer.parseInt(params.get("resultCode"));
             String transId = payload.get("transId") != null ? payload.get("transId").toString() : null;
 
-            momoPaymentService.processCallback(orderId, requestId, resultCode, transId);
+            if (paymentEventService.append(orderId, requestId, transId, resultCode, payload)) {
+                paymentEventWorker.wakeUp();
+            } else {
+                logger.info("ℹ️ IPN trùng lặp - requestId: {}, transId: {}", requestId, transId);
+            }
 
             return Map.of("resultCode", 0, "message", "OK");
         } catch (Exception e) {
             logger.error("❌ Lỗi xử lý IPN: {}", e.getMessage());
-            return Map.of("resultCode", 1, "message", e.getMessage());
+            return Map.of("resultCode", 1, "message", String.valueOf(e.getMessage()));
         }
     }
 
@@ -1,7 +1,8 @@
 package com.phanthanhthien.cmp3025.bookstore.controller;
 
+import com.phanthanhthien.cmp3025.bookstore.entities.Category;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
-import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.CatalogCache;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -9,6 +10,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 
+import java.util.List;
+
 /**
  * HomeController - Điều hướng trang chủ
  * 
@@ -23,7 +26,7 @@ public class HomeController {
     private BookRepository bookRepository;
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private CatalogCache catalogCache;
 
     /**
      * Xử lý request GET cho đường dẫn "/" và "/home"
@@ -40,21 +43,19 @@ public class HomeController {
 
         // Lấy số liệu thống kê từ MongoDB
         model.addAttribute("totalBooks", bookRepository.count());
-        model.addAttribute("totalCategories", categoryRepository.count());
+        List<Category> categories = catalogCache.findAllCategories();
+        model.addAttribute("totalCategories", categories.size());
         model.addAttribute("totalOrders", 0); // Sẽ cập nhật khi có Order repository
         model.addAttribute("totalUsers", 0); // Sẽ cập nhật khi có User repository
 
         // Lấy danh sách danh mục
-        model.addAttribute("categories", categoryRepository.findAll());
+        model.addAttribute("categories", categories);
 
         // Chỉ truyền books cho người dùng thường (không phải ADMIN)
         // Admin không cần xem sách trên trang chủ, họ có trang quản lý riêng
         if (authentication == null || authentication.getAuthorities().stream()
                 .noneMatch(auth -> auth.getAuthority().equals("ROLE_ADMIN"))) {
-            model.addAttribute("books", bookRepository.findAll()
-                    .stream()
-                    .limit(12)
-                    .toList());
+            model.addAttribute("books", catalogCache.findHomeBooks());
         }
 
         return "home";
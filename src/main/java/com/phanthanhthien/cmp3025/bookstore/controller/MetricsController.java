@@ -0,0 +1,64 @@
+package com.phanthanhthien.cmp3025.bookstore.controller;
+
+import com.phanthanhthien.cmp3025.bookstore.monitoring.MetricsExporter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * MetricsController - Endpoint /metrics cho Prometheus scrape
+ *
+ * Cho phép khi có header "Authorization: Bearer <metrics.scrape-token>"
+ * hoặc khi đang đăng nhập với quyền ADMIN (xem trực tiếp trên trình duyệt).
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Slf4j
+@RestController
+public class MetricsController {
+
+    private static final MediaType PROMETHEUS_TEXT = MediaType.parseMediaType("text/plain;version=0.0.4;charset=utf-8");
+
+    @Autowired
+    private MetricsExporter metricsExporter;
+
+    @Value("${metrics.scrape-token:}")
+    private String scrapeToken;
+
+    @GetMapping("/metrics")
+    public ResponseEntity<String> scrape(
+            @RequestHeader(value = "Authorization", required = false) String authorization,
+            Authentication authentication) {
+
+        if (!hasValidToken(authorization) && !isAdmin(authentication)) {
+            log.warn("⛔ Từ chối scrape /metrics: thiếu token hoặc quyền ADMIN");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+        return ResponseEntity.ok().contentType(PROMETHEUS_TEXT).body(metricsExporter.scrape());
+    }
+
+    private boolean hasValidToken(String authorization) {
+        if (scrapeToken.isBlank() || authorization == null || !authorization.startsWith("Bearer ")) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                authorization.substring(7).getBytes(StandardCharsets.UTF_8),
+                scrapeToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isAdmin(Authentication authentication) {
+        return authentication != null && authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()));
+    }
+}
@@ -1,7 +1,11 @@
 package com.phanthanhthien.cmp3025.bookstore.controller.api;
 
+import com.phanthanhthien.cmp3025.bookstore.constants.AppConstants;
+import com.phanthanhthien.cmp3025.bookstore.dto.CursorPage;
 import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.BookService;
+import com.phanthanhthien.cmp3025.bookstore.services.CatalogCache;
 import com.phanthanhthien.cmp3025.bookstore.services.CounterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -29,15 +33,33 @@ public class BookRestController {
     @Autowired
     private BookRepository bookRepository;
 
+    @Autowired
+    private BookService bookService;
+
     @Autowired
     private CounterService counterService;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     /**
-     * GET /api/v1/books - Lấy danh sách tất cả sách
+     * GET /api/v1/books?size=&cursor=&sort= - Lấy danh sách sách theo trang
+     *
+     * sort: id | price | createdAt (tiền tố "-" để giảm dần), cursor lấy từ
+     * nextCursor của trang trước.
      */
     @GetMapping
-    public ResponseEntity<List<Book>> getAllBooks() {
-        return ResponseEntity.ok(bookRepository.findAll());
+    public ResponseEntity<?> getAllBooks(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) Integer size) {
+        try {
+            int pageSize = size != null ? size : AppConstants.DEFAULT_PAGE_SIZE;
+            CursorPage<Book> page = bookService.findPage(sort, cursor, pageSize);
+            return ResponseEntity.ok(page);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
@@ -45,7 +67,7 @@ public class BookRestController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getBookById(@PathVariable Long id) {
-        Optional<Book> book = bookRepository.findById(id);
+        Optional<Book> book = catalogCache.findBookById(id);
         if (book.isPresent()) {
             return ResponseEntity.ok(book.get());
         }
@@ -144,8 +166,7 @@ public class BookRestController {
      */
     @GetMapping("/search")
     public ResponseEntity<List<Book>> searchBooks(@RequestParam String q) {
-        List<Book> results = bookRepository
-                .findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(q, q);
+        List<Book> results = bookService.search(q);
         return ResponseEntity.ok(results);
     }
 
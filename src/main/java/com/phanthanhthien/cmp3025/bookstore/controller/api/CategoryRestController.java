@@ -4,6 +4,7 @@ import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.entities.Category;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.services.CatalogCache;
 import com.phanthanhthien.cmp3025.bookstore.services.CounterService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -37,6 +38,9 @@ public class CategoryRestController {
     @Autowired
     private CounterService counterService;
 
+    @Autowired
+    private CatalogCache catalogCache;
+
     /**
      * GET /api/v1/categories/by-category/{categoryId}/books - Lấy danh sách sách
      * thuộc danh mục
@@ -52,7 +56,7 @@ public class CategoryRestController {
      */
     @GetMapping
     public ResponseEntity<List<Category>> getAllCategories() {
-        return ResponseEntity.ok(categoryRepository.findAll());
+        return ResponseEntity.ok(catalogCache.findAllCategories());
     }
 
     /**
@@ -60,7 +64,7 @@ public class CategoryRestController {
      */
     @GetMapping("/{id}")
     public ResponseEntity<?> getCategoryById(@PathVariable Long id) {
-        Optional<Category> category = categoryRepository.findById(id);
+        Optional<Category> category = catalogCache.findCategoryById(id);
         if (category.isPresent()) {
             return ResponseEntity.ok(category.get());
         }
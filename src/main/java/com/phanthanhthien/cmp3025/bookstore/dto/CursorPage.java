@@ -0,0 +1,68 @@
+package com.phanthanhthien.cmp3025.bookstore.dto;
+
+import java.util.List;
+
+/**
+ * CursorPage - Envelope cho phân trang theo con trỏ (keyset pagination)
+ *
+ * nextCursor là token mờ (opaque), client chỉ cần gửi lại nguyên văn
+ * để lấy trang tiếp theo. nextCursor = null nghĩa là đã hết dữ liệu.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+    private int size;
+    private String sort;
+
+    // Constructors
+    public CursorPage() {}
+
+    public CursorPage(List<T> items, String nextCursor, int size, String sort) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.size = size;
+        this.sort = sort;
+    }
+
+    // Getters và Setters
+    public List<T> getItems() {
+        return items;
+    }
+
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public boolean isHasMore() {
+        return nextCursor != null;
+    }
+
+}
@@ -1,7 +1,11 @@
 package com.phanthanhthien.cmp3025.bookstore.entities;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,6 +17,12 @@ import java.time.LocalDateTime;
  * @version 1.0.0
  */
 @Document(collection = "books")
+@CompoundIndexes({
+        // Lọc khoảng giá (findByPriceLessThanEqual) và phân trang con trỏ sort=price
+        @CompoundIndex(name = "price_id", def = "{'price': 1, '_id': 1}", background = true),
+        // findByCategoryId, đếm sách theo danh mục
+        @CompoundIndex(name = "categoryId_id", def = "{'categoryId': 1, '_id': 1}", background = true)
+})
 public class Book {
 
     @Id
@@ -24,6 +34,7 @@ public class Book {
 
     private String description;
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal price;
 
     private Integer stock;
@@ -69,6 +80,20 @@ public class Book {
         this.updatedAt = LocalDateTime.now();
     }
 
+    // Copy constructor (các field đều là kiểu bất biến nên bản sao nông là đủ)
+    public Book(Book other) {
+        this.id = other.id;
+        this.title = other.title;
+        this.author = other.author;
+        this.description = other.description;
+        this.price = other.price;
+        this.stock = other.stock;
+        this.categoryId = other.categoryId;
+        this.imageUrl = other.imageUrl;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // Getters và Setters
     public Long getId() {
         return id;
@@ -1,6 +1,7 @@
 package com.phanthanhthien.cmp3025.bookstore.entities;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.math.BigDecimal;
@@ -18,6 +19,8 @@ public class Cart {
     @Id
     private String id;
 
+    // Mỗi user một giỏ: unique để upsert đồng thời không tạo giỏ trùng
+    @Indexed(unique = true)
     private String userId;
 
     private List<CartItem> items = new ArrayList<>();
@@ -1,5 +1,8 @@
 package com.phanthanhthien.cmp3025.bookstore.entities;
 
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
 import java.math.BigDecimal;
 
 /**
@@ -12,6 +15,7 @@ public class CartItem {
     private String bookTitle;
     private String author;
     private String imageUrl;
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal price;
     private Integer quantity;
 
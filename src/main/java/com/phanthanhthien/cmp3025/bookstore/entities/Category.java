@@ -48,6 +48,15 @@ public class Category {
         this.updatedAt = LocalDateTime.now();
     }
 
+    // Copy constructor
+    public Category(Category other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.description = other.description;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     // Getters và Setters
     public Long getId() {
         return id;
@@ -0,0 +1,209 @@
+package com.phanthanhthien.cmp3025.bookstore.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ImportJob - Tiến trình nhập sách hàng loạt từ file CSV / XLSX
+ *
+ * processedRows là số dòng dữ liệu đã ghi xong (kể cả dòng lỗi), dùng làm
+ * điểm tiếp tục khi job bị ngắt. pendingFromRow / pendingFirstId ghi lại
+ * batch đang ghi dở để lần chạy lại dùng đúng dải ID cũ (upsert theo _id).
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Document(collection = "import_jobs")
+@CompoundIndexes({
+        // Tiếp tục job dở khi khởi động: findByStatusIn
+        @CompoundIndex(name = "status_createdAt", def = "{'status': 1, 'createdAt': -1}", background = true),
+        // Danh sách job gần đây: findTop20ByOrderByCreatedAtDesc
+        @CompoundIndex(name = "createdAt_desc", def = "{'createdAt': -1}", background = true)
+})
+public class ImportJob {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+
+    private String fileName;
+
+    private String filePath;
+
+    private String format; // CSV, XLSX
+
+    private String status;
+
+    private long processedRows;
+
+    private long insertedRows;
+
+    private long failedRows;
+
+    private List<String> errors = new ArrayList<>();
+
+    private String message;
+
+    private Long pendingFromRow;
+
+    private Long pendingFirstId;
+
+    private Integer pendingCount;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+
+    public ImportJob() {
+        this.status = PENDING;
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public ImportJob(String fileName, String format) {
+        this();
+        this.fileName = fileName;
+        this.format = format;
+    }
+
+    // Getters và Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public long getProcessedRows() {
+        return processedRows;
+    }
+
+    public void setProcessedRows(long processedRows) {
+        this.processedRows = processedRows;
+    }
+
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    public void setInsertedRows(long insertedRows) {
+        this.insertedRows = insertedRows;
+    }
+
+    public long getFailedRows() {
+        return failedRows;
+    }
+
+    public void setFailedRows(long failedRows) {
+        this.failedRows = failedRows;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<String> errors) {
+        this.errors = errors;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Long getPendingFromRow() {
+        return pendingFromRow;
+    }
+
+    public void setPendingFromRow(Long pendingFromRow) {
+        this.pendingFromRow = pendingFromRow;
+    }
+
+    public Long getPendingFirstId() {
+        return pendingFirstId;
+    }
+
+    public void setPendingFirstId(Long pendingFirstId) {
+        this.pendingFirstId = pendingFirstId;
+    }
+
+    public Integer getPendingCount() {
+        return pendingCount;
+    }
+
+    public void setPendingCount(Integer pendingCount) {
+        this.pendingCount = pendingCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+}
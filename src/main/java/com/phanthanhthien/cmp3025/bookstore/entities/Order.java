@@ -1,7 +1,11 @@
 package com.phanthanhthien.cmp3025.bookstore.entities;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -13,6 +17,17 @@ import java.util.List;
  * Author: Phan Thanh Thien - MSSV: 2280603036
  */
 @Document(collection = "orders")
+@CompoundIndexes({
+        // Danh sách đơn hàng admin: sort createdAt desc, _id desc (khóa phụ ổn định)
+        @CompoundIndex(name = "createdAt_id_desc", def = "{'createdAt': -1, '_id': -1}", background = true),
+        // Thống kê / lọc theo trạng thái
+        @CompoundIndex(name = "paymentStatus_createdAt", def = "{'paymentStatus': 1, 'createdAt': -1}", background = true),
+        @CompoundIndex(name = "orderStatus_createdAt", def = "{'orderStatus': 1, 'createdAt': -1}", background = true),
+        // Lịch sử đơn hàng của user: findByUserIdOrderByCreatedAtDesc
+        @CompoundIndex(name = "userId_createdAt", def = "{'userId': 1, 'createdAt': -1}", background = true),
+        // Tra cứu đơn hàng khi MoMo callback / IPN: findByMomoRequestId (đơn COD không có field này)
+        @CompoundIndex(name = "momoRequestId_unique", def = "{'momoRequestId': 1}", unique = true, sparse = true, background = true)
+})
 public class Order {
 
     @Id
@@ -24,13 +39,16 @@ public class Order {
 
     private List<CartItem> items = new ArrayList<>();
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal totalAmount;
 
     private String paymentMethod; // MOMO, COD
 
     private String paymentStatus; // PENDING, SUCCESS, FAILED
 
-    private String orderStatus; // PENDING, PROCESSING, SHIPPED, COMPLETED, CANCELLED
+    private String orderStatus; // PENDING, PROCESSING, SHIPPED, COMPLETED, CANCELLED, REFUND_REQUIRED
+
+    private String stockStatus; // PENDING, DONE, FAILED - trạng thái trừ kho sau khi thanh toán
 
     private String receiverName;
 
@@ -42,8 +60,10 @@ public class Order {
 
     private String voucherCode;
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal discountAmount;
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal finalAmount;
 
     private String momoTransId;
@@ -175,6 +195,14 @@ public class Order {
         this.orderStatus = orderStatus;
     }
 
+    public String getStockStatus() {
+        return stockStatus;
+    }
+
+    public void setStockStatus(String stockStatus) {
+        this.stockStatus = stockStatus;
+    }
+
     public String getVoucherId() {
         return voucherId;
     }
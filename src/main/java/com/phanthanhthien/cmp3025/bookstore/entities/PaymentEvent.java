@@ -0,0 +1,179 @@
+package com.phanthanhthien.cmp3025.bookstore.entities;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PaymentEvent - Thông báo thanh toán (IPN) chờ xử lý (transactional outbox)
+ *
+ * _id = requestId:transId nên MoMo gửi lại cùng một IPN chỉ tạo một event.
+ * Trạng thái: PENDING -> PROCESSING -> DONE, lỗi thì quay lại PENDING để thử
+ * lại, quá số lần thử thì DEAD.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+@Document(collection = "payment_events")
+// Worker lấy event đến hạn xử lý
+@CompoundIndex(name = "status_nextAttemptAt", def = "{'status': 1, 'nextAttemptAt': 1}", background = true)
+public class PaymentEvent {
+
+    public static final String PENDING = "PENDING";
+    public static final String PROCESSING = "PROCESSING";
+    public static final String DONE = "DONE";
+    public static final String DEAD = "DEAD";
+
+    @Id
+    private String id;
+
+    private String orderId;
+
+    private String requestId;
+
+    private String transId;
+
+    private Integer resultCode;
+
+    private Map<String, Object> payload = new HashMap<>();
+
+    private String status;
+
+    private Integer attempts;
+
+    private String lastError;
+
+    private LocalDateTime nextAttemptAt;
+
+    private LocalDateTime lockedUntil;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime processedAt;
+
+    public PaymentEvent() {
+        this.status = PENDING;
+        this.attempts = 0;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public PaymentEvent(String orderId, String requestId, String transId, Integer resultCode,
+            Map<String, Object> payload) {
+        this();
+        this.id = requestId + ":" + (transId != null ? transId : "rc" + resultCode);
+        this.orderId = orderId;
+        this.requestId = requestId;
+        this.transId = transId;
+        this.resultCode = resultCode;
+        this.payload = payload;
+    }
+
+    // Getters và Setters
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(String orderId) {
+        this.orderId = orderId;
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public void setRequestId(String requestId) {
+        this.requestId = requestId;
+    }
+
+    public String getTransId() {
+        return transId;
+    }
+
+    public void setTransId(String transId) {
+        this.transId = transId;
+    }
+
+    public Integer getResultCode() {
+        return resultCode;
+    }
+
+    public void setResultCode(Integer resultCode) {
+        this.resultCode = resultCode;
+    }
+
+    public Map<String, Object> getPayload() {
+        return payload;
+    }
+
+    public void setPayload(Map<String, Object> payload) {
+        this.payload = payload;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLockedUntil() {
+        return lockedUntil;
+    }
+
+    public void setLockedUntil(LocalDateTime lockedUntil) {
+        this.lockedUntil = lockedUntil;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getProcessedAt() {
+        return processedAt;
+    }
+
+    public void setProcessedAt(LocalDateTime processedAt) {
+        this.processedAt = processedAt;
+    }
+}
@@ -1,12 +1,15 @@
 package com.phanthanhthien.cmp3025.bookstore.entities;
 
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
 
 @Document(collection = "users")
+// Đăng nhập OAuth2: findByProviderAndProviderId
+@CompoundIndex(name = "provider_providerId", def = "{'provider': 1, 'providerId': 1}", background = true)
 public class User {
     
     @Id
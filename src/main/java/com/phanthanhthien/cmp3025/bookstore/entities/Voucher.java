@@ -2,7 +2,12 @@ package com.phanthanhthien.cmp3025.bookstore.entities;
 
 import jakarta.validation.constraints.*;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.math.BigDecimal;
@@ -15,6 +20,10 @@ import java.time.LocalDateTime;
  * @version 1.0.0
  */
 @Document(collection = "vouchers")
+@CompoundIndexes({
+        // findByIsActiveTrue, findByIsActiveTrueAndValidToBefore
+        @CompoundIndex(name = "isActive_validTo", def = "{'isActive': 1, 'validTo': 1}", background = true)
+})
 public class Voucher {
 
     @Id
@@ -22,6 +31,7 @@ public class Voucher {
 
     @NotBlank(message = "Mã voucher không được để trống")
     @Size(min = 3, max = 50, message = "Mã voucher phải từ 3 đến 50 ký tự")
+    @Indexed(unique = true, background = true)
     private String code;
 
     private String description;
@@ -29,10 +39,13 @@ public class Voucher {
     @NotNull(message = "Phần trăm giảm giá không được để trống")
     @DecimalMin(value = "0.01", message = "Phần trăm giảm giá phải lớn hơn 0")
     @DecimalMax(value = "99.99", message = "Phần trăm giảm giá phải nhỏ hơn 100")
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal discountPercent;
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal maxDiscountAmount;
 
+    @Field(targetType = FieldType.DECIMAL128)
     private BigDecimal minOrderAmount;
 
     @NotNull(message = "Số lần sử dụng không được để trống")
@@ -79,6 +92,23 @@ public class Voucher {
         this.updatedAt = LocalDateTime.now();
     }
 
+    // Copy constructor (các field đều là kiểu bất biến nên bản sao nông là đủ)
+    public Voucher(Voucher other) {
+        this.id = other.id;
+        this.code = other.code;
+        this.description = other.description;
+        this.discountPercent = other.discountPercent;
+        this.maxDiscountAmount = other.maxDiscountAmount;
+        this.minOrderAmount = other.minOrderAmount;
+        this.maxUsage = other.maxUsage;
+        this.currentUsage = other.currentUsage;
+        this.validFrom = other.validFrom;
+        this.validTo = other.validTo;
+        this.isActive = other.isActive;
+        this.createdAt = other.createdAt;
+        this.updatedAt = other.updatedAt;
+    }
+
     public String getId() {
         return id;
     }
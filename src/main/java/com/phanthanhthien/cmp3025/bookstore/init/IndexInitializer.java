@@ -0,0 +1,187 @@
+package com.phanthanhthien.cmp3025.bookstore.init;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.Cart;
+import com.phanthanhthien.cmp3025.bookstore.entities.ImportJob;
+import com.phanthanhthien.cmp3025.bookstore.entities.Order;
+import com.phanthanhthien.cmp3025.bookstore.entities.PaymentEvent;
+import com.phanthanhthien.cmp3025.bookstore.entities.User;
+import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * IndexInitializer - Tạo index MongoDB khai báo trên entity khi ứng dụng start
+ *
+ * Spring Boot 3 tắt auto-index-creation mặc định, nên các index khai báo
+ * bằng @Indexed / @CompoundIndex được tạo tường minh tại đây (background).
+ * Sau đó chạy explain() cho từng truy vấn của repository và cảnh báo nếu
+ * query plan vẫn là COLLSCAN, để phát hiện thiếu index ngay khi khởi động.
+ *
+ * Các truy vấn Containing / IgnoreCase (regex không neo) không thể dùng
+ * index nên không nằm trong danh sách kiểm tra; tìm kiếm sách đi qua
+ * BookSearchIndex.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class IndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexInitializer.class);
+
+    private static final List<Class<?>> INDEXED_ENTITIES = List.of(
+            Book.class, Cart.class, ImportJob.class, Order.class, PaymentEvent.class, User.class, Voucher.class);
+
+    // Index cũ đã được thay bằng index khác (collection -> tên index), xóa nếu còn
+    private static final Map<String, String> RETIRED_INDEXES = Map.of(
+            "orders", "createdAt_desc");
+
+    // Mỗi phương thức repository / truy vấn MongoTemplate -> truy vấn tương đương
+    // (giá trị mẫu chỉ để lấy query plan); thêm truy vấn mới thì thêm probe ở đây
+    private static final List<QueryProbe> QUERY_PROBES = List.of(
+            new QueryProbe("BookRepository.findByCategoryId", "books",
+                    new Document("categoryId", 0L), null),
+            new QueryProbe("BookRepository.findByPriceLessThanEqual", "books",
+                    new Document("price", new Document("$lte", Decimal128.parse("0"))), null),
+            new QueryProbe("CartRepository.findByUserId / deleteByUserId", "carts",
+                    new Document("userId", ""), null),
+            new QueryProbe("ImportJobRepository.findByStatusIn", "import_jobs",
+                    new Document("status", new Document("$in", List.of(ImportJob.PENDING, ImportJob.RUNNING))), null),
+            new QueryProbe("ImportJobRepository.findTop20ByOrderByCreatedAtDesc", "import_jobs",
+                    new Document(), new Document("createdAt", -1)),
+            new QueryProbe("OrderRepository.findByUserIdOrderByCreatedAtDesc", "orders",
+                    new Document("userId", ""), new Document("createdAt", -1)),
+            new QueryProbe("OrderRepository.findByMomoRequestId", "orders",
+                    new Document("momoRequestId", ""), null),
+            new QueryProbe("OrderRepository.findAllBy(createdAt desc, _id desc)", "orders",
+                    new Document(), new Document("createdAt", -1).append("_id", -1)),
+            new QueryProbe("OrderService.getStatistics(paymentStatus)", "orders",
+                    new Document("paymentStatus", ""), null),
+            new QueryProbe("OrderService.getStatistics(orderStatus)", "orders",
+                    new Document("orderStatus", ""), null),
+            new QueryProbe("PaymentEventService.claimNext", "payment_events",
+                    new Document("$or", List.of(
+                            new Document("status", PaymentEvent.PENDING)
+                                    .append("nextAttemptAt", new Document("$lte", new Date(0))),
+                            new Document("status", PaymentEvent.PROCESSING)
+                                    .append("lockedUntil", new Document("$lt", new Date(0))))),
+                    new Document("nextAttemptAt", 1)),
+            new QueryProbe("UserRepository.findByEmail / existsByEmail", "users",
+                    new Document("email", ""), null),
+            new QueryProbe("UserRepository.findByProviderAndProviderId", "users",
+                    new Document("provider", "").append("providerId", ""), null),
+            new QueryProbe("VoucherRepository.findByCode / existsByCode", "vouchers",
+                    new Document("code", ""), null),
+            new QueryProbe("VoucherRepository.findByIsActiveTrue", "vouchers",
+                    new Document("isActive", true), null),
+            new QueryProbe("VoucherRepository.findByIsActiveTrueAndValidToBefore", "vouchers",
+                    new Document("isActive", true).append("validTo", new Document("$lt", new Date(0))), null));
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${mongodb.index.audit-query-plans:true}")
+    private boolean auditQueryPlans;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        IndexResolver resolver = new MongoPersistentEntityIndexResolver(
+                mongoTemplate.getConverter().getMappingContext());
+
+        for (Class<?> entity : INDEXED_ENTITIES) {
+            try {
+                IndexOperations indexOps = mongoTemplate.indexOps(entity);
+                resolver.resolveIndexFor(entity).forEach(indexOps::ensureIndex);
+                logger.info("🗂️ Đã kiểm tra index cho {}", entity.getSimpleName());
+            } catch (Exception e) {
+                logger.warn("⚠️ Không tạo được index cho {}: {}", entity.getSimpleName(), e.getMessage());
+            }
+        }
+
+        RETIRED_INDEXES.forEach(this::dropIfExists);
+
+        if (auditQueryPlans) {
+            auditQueryPlans();
+        }
+    }
+
+    private void dropIfExists(String collection, String indexName) {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(collection);
+            if (indexOps.getIndexInfo().stream().anyMatch(index -> indexName.equals(index.getName()))) {
+                indexOps.dropIndex(indexName);
+                logger.info("🗑️ Đã xóa index cũ {}.{}", collection, indexName);
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Không xóa được index {}.{}: {}", collection, indexName, e.getMessage());
+        }
+    }
+
+    /**
+     * Chạy explain() cho từng truy vấn, cảnh báo truy vấn nào còn quét toàn collection
+     */
+    private void auditQueryPlans() {
+        int collectionScans = 0;
+        for (QueryProbe probe : QUERY_PROBES) {
+            try {
+                var find = mongoTemplate.getCollection(probe.collection()).find(probe.filter());
+                if (probe.sort() != null) {
+                    find = find.sort(probe.sort());
+                }
+                Document plan = find.explain();
+                if (containsCollectionScan(plan.get("queryPlanner"))) {
+                    collectionScans++;
+                    logger.warn("🐢 {} đang dùng COLLSCAN - thiếu index?", probe.method());
+                }
+            } catch (Exception e) {
+                logger.warn("⚠️ Không explain được {}: {}", probe.method(), e.getMessage());
+            }
+        }
+        if (collectionScans == 0) {
+            logger.info("✅ {} truy vấn repository đều dùng index", QUERY_PROBES.size());
+        }
+    }
+
+    /**
+     * Tìm stage COLLSCAN trong winning plan (duyệt đệ quy inputStage / inputStages / queryPlan)
+     */
+    private boolean containsCollectionScan(Object node) {
+        if (node instanceof Document document) {
+            if ("COLLSCAN".equals(document.get("stage"))) {
+                return true;
+            }
+            for (String key : document.keySet()) {
+                // rejectedPlans không phải plan được chọn
+                if (!"rejectedPlans".equals(key) && containsCollectionScan(document.get(key))) {
+                    return true;
+                }
+            }
+        } else if (node instanceof List<?> list) {
+            for (Object item : list) {
+                if (containsCollectionScan(item)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private record QueryProbe(String method, String collection, Document filter, Document sort) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.phanthanhthien.cmp3025.bookstore.init;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MoneyFieldMigration - Chuyển các field tiền tệ từ string sang Decimal128
+ *
+ * Trước đây BigDecimal được Spring Data lưu dưới dạng string, nên so sánh giá
+ * là so sánh chuỗi và không dùng được index số. Migration chạy theo batch
+ * (theo _id tăng dần), chỉ sửa document còn lưu string nên có thể chạy lại
+ * an toàn nếu bị ngắt giữa chừng. Hoàn tất thì ghi dấu vào collection migrations.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MoneyFieldMigration implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(MoneyFieldMigration.class);
+
+    private static final String MIGRATION_ID = "money-decimal128";
+
+    private static final int BATCH_SIZE = 500;
+
+    // collection -> các field tiền tệ ở cấp document
+    private static final Map<String, List<String>> MONEY_FIELDS = new LinkedHashMap<>();
+
+    // collection có mảng items (CartItem) chứa price
+    private static final List<String> ITEM_COLLECTIONS = List.of("carts", "orders");
+
+    static {
+        MONEY_FIELDS.put("books", List.of("price"));
+        MONEY_FIELDS.put("orders", List.of("totalAmount", "discountAmount", "finalAmount"));
+        MONEY_FIELDS.put("vouchers", List.of("discountPercent", "maxDiscountAmount", "minOrderAmount"));
+    }
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(String... args) {
+        MongoCollection<Document> migrations = mongoTemplate.getCollection("migrations");
+        if (migrations.find(Filters.eq("_id", MIGRATION_ID)).first() != null) {
+            return;
+        }
+
+        logger.info("💱 Bắt đầu chuyển field tiền tệ sang Decimal128...");
+        long total = 0;
+
+        for (Map.Entry<String, List<String>> entry : MONEY_FIELDS.entrySet()) {
+            for (String field : entry.getValue()) {
+                Document set = new Document(field, toDecimal("$" + field));
+                total += migrate(entry.getKey(), Filters.type(field, "string"), set);
+            }
+        }
+
+        for (String collection : ITEM_COLLECTIONS) {
+            Document set = new Document("items", new Document("$map", new Document("input", "$items")
+                    .append("as", "it")
+                    .append("in", new Document("$mergeObjects", List.of("$$it",
+                            new Document("price", toDecimal("$$it.price")))))));
+            total += migrate(collection, Filters.type("items.price", "string"), set);
+        }
+
+        migrations.replaceOne(Filters.eq("_id", MIGRATION_ID),
+                new Document("_id", MIGRATION_ID).append("completedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+        logger.info("✅ Đã chuyển {} document sang Decimal128", total);
+    }
+
+    /**
+     * Cập nhật theo batch các document khớp filter bằng pipeline $set
+     *
+     * @return số document đã sửa
+     */
+    private long migrate(String collectionName, Bson filter, Document set) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(collectionName);
+        List<Document> pipeline = List.of(new Document("$set", set));
+        long modified = 0;
+        Object lastId = null;
+
+        while (true) {
+            Bson batchFilter = lastId == null ? filter : Filters.and(filter, Filters.gt("_id", lastId));
+            List<Object> ids = new ArrayList<>(BATCH_SIZE);
+            for (Document doc : collection.find(batchFilter)
+                    .projection(Projections.include("_id"))
+                    .sort(Sorts.ascending("_id"))
+                    .limit(BATCH_SIZE)) {
+                ids.add(doc.get("_id"));
+            }
+            if (ids.isEmpty()) {
+                break;
+            }
+
+            modified += collection.updateMany(Filters.and(Filters.in("_id", ids), filter), pipeline)
+                    .getModifiedCount();
+            lastId = ids.get(ids.size() - 1);
+        }
+
+        if (modified > 0) {
+            logger.info("💱 {}: đã chuyển {} document", collectionName, modified);
+        }
+        return modified;
+    }
+
+    /**
+     * Chỉ chuyển giá trị string; chuỗi không hợp lệ được giữ nguyên thay vì làm hỏng batch
+     */
+    private static Document toDecimal(String path) {
+        return new Document("$cond", List.of(
+                new Document("$eq", List.of(new Document("$type", path), "string")),
+                new Document("$convert", new Document("input", path)
+                        .append("to", "decimal")
+                        .append("onError", path)),
+                path));
+    }
+}
@@ -0,0 +1,29 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * BookSearchEvent - JFR event cho một lần tìm kiếm sách (chỉ mục BM25 trong bộ nhớ)
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Name("com.phanthanhthien.bookstore.BookSearch")
+@Label("Book Search")
+@Category({ "Bookstore", "Search" })
+@StackTrace(false)
+public class BookSearchEvent extends Event {
+
+    @Label("Keyword")
+    public String keyword;
+
+    @Label("Result Count")
+    public int resultCount;
+
+    @Label("Index Size")
+    public int indexSize;
+}
@@ -0,0 +1,63 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * CheckoutStepEvent - JFR event cho từng bước thanh toán
+ *
+ * Các bước: CART_LOAD, VOUCHER_VALIDATION, ORDER_SAVE, GATEWAY_CALL.
+ * Khi không có recording nào bật event này, begin() / commit() gần như không tốn gì.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Name("com.phanthanhthien.bookstore.CheckoutStep")
+@Label("Checkout Step")
+@Category({ "Bookstore", "Checkout" })
+@Description("Một bước của payWithMomo: nạp giỏ hàng, kiểm tra voucher, lưu đơn, gọi MoMo")
+@StackTrace(false)
+public class CheckoutStepEvent extends Event {
+
+    @Label("Step")
+    public String step;
+
+    @Label("User")
+    public String userId;
+
+    @Label("Order Id")
+    public String orderId;
+
+    @Label("Item Count")
+    @Description("Số dòng sách trong giỏ / đơn")
+    public int itemCount;
+
+    @Label("Voucher Code")
+    public String voucherCode;
+
+    @Label("Success")
+    public boolean success;
+
+    /**
+     * Tạo event và bắt đầu đo
+     */
+    public static CheckoutStepEvent start(String step, String userId) {
+        CheckoutStepEvent event = new CheckoutStepEvent();
+        event.step = step;
+        event.userId = userId;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Kết thúc đo và ghi event
+     */
+    public void finish(boolean success) {
+        this.success = success;
+        commit();
+    }
+}
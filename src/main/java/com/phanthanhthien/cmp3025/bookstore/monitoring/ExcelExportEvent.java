@@ -0,0 +1,48 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * ExcelExportEvent - JFR event cho từng phase của xuất Excel
+ *
+ * - ROWS: đọc cursor MongoDB và dựng các dòng SXSSF
+ * - WRITE: workbook.write() ra response (nén zip + copy file tạm)
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Name("com.phanthanhthien.bookstore.ExcelExport")
+@Label("Excel Export")
+@Category({ "Bookstore", "Export" })
+@Description("Một phase của exportBooksToExcel / exportOrdersToExcel")
+@StackTrace(false)
+public class ExcelExportEvent extends Event {
+
+    @Label("Export")
+    @Description("books hoặc orders")
+    public String export;
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Row Count")
+    public int rowCount;
+
+    @Label("Bytes Written")
+    @DataAmount
+    public long bytesWritten;
+
+    public static ExcelExportEvent start(String export, String phase) {
+        ExcelExportEvent event = new ExcelExportEvent();
+        event.export = export;
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
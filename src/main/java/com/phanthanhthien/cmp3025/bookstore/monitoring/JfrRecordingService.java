@@ -0,0 +1,138 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JfrRecordingService - Bật / tắt JFR recording theo yêu cầu từ trang quản trị
+ *
+ * Recording dùng cấu hình "default" (overhead ~1%) hoặc "profile" của JDK,
+ * cộng các event nghiệp vụ của ứng dụng (checkout, trừ kho, xuất Excel, tìm
+ * kiếm). Mỗi lần chỉ có một recording; recording tự dừng sau
+ * jfr.max-duration-minutes nếu quên tắt, file .jfr nằm trong jfr.recording-dir.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class JfrRecordingService {
+
+    private static final List<String> SETTINGS = List.of("default", "profile");
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    @Value("${jfr.recording-dir:${java.io.tmpdir}/bookstore-jfr}")
+    private String recordingDir;
+
+    @Value("${jfr.max-duration-minutes:30}")
+    private long maxDurationMinutes;
+
+    private Recording recording;
+    private Path file;
+    private String settings;
+    private LocalDateTime startedAt;
+
+    /**
+     * Bắt đầu recording mới
+     *
+     * @throws IllegalArgumentException nếu settings không phải default / profile
+     * @throws IllegalStateException nếu đang có recording chạy
+     */
+    public synchronized Map<String, Object> start(String settingsName) throws IOException, ParseException {
+        if (!SETTINGS.contains(settingsName)) {
+            throw new IllegalArgumentException("Cấu hình JFR không hợp lệ: " + settingsName + " (default / profile)");
+        }
+        if (isRunning()) {
+            throw new IllegalStateException("Đang có recording chạy từ " + startedAt);
+        }
+        closeQuietly();
+
+        Path dir = Paths.get(recordingDir);
+        Files.createDirectories(dir);
+        startedAt = LocalDateTime.now();
+        file = dir.resolve("bookstore-" + startedAt.format(FILE_TIME) + ".jfr");
+        settings = settingsName;
+
+        recording = new Recording(Configuration.getConfiguration(settingsName));
+        recording.setName("bookstore-admin");
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.setDuration(Duration.ofMinutes(maxDurationMinutes));
+        recording.enable(CheckoutStepEvent.class);
+        recording.enable(PaymentStockEvent.class);
+        recording.enable(ExcelExportEvent.class);
+        recording.enable(BookSearchEvent.class);
+        recording.start();
+
+        log.info("🎬 Bắt đầu JFR recording ({}), tự dừng sau {} phút: {}", settingsName, maxDurationMinutes, file);
+        return getStatus();
+    }
+
+    /**
+     * Dừng recording và trả về file .jfr đã ghi
+     *
+     * @throws IllegalStateException nếu chưa từng bắt đầu recording
+     */
+    public synchronized Path stop() {
+        if (recording == null) {
+            throw new IllegalStateException("Chưa có recording nào");
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            // Có destination nên stop() ghi dữ liệu ra file
+            recording.stop();
+        }
+        closeQuietly();
+        log.info("⏹️ Dừng JFR recording: {}", file);
+        return file;
+    }
+
+    public synchronized Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", isRunning());
+        status.put("settings", settings);
+        status.put("startedAt", startedAt != null ? startedAt.toString() : null);
+        status.put("maxDurationMinutes", maxDurationMinutes);
+        status.put("file", file != null ? file.toString() : null);
+        try {
+            status.put("fileBytes", file != null && Files.exists(file) ? Files.size(file) : 0);
+        } catch (IOException e) {
+            status.put("fileBytes", 0);
+        }
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (isRunning()) {
+            stop();
+        }
+    }
+
+    private boolean isRunning() {
+        return recording != null && recording.getState() == RecordingState.RUNNING;
+    }
+
+    private void closeQuietly() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
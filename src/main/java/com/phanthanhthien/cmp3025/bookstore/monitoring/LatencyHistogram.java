@@ -0,0 +1,140 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram - Histogram độ trễ không khóa, bucket log-tuyến tính kiểu HDR
+ *
+ * Giá trị tính bằng micro giây. Mỗi khoảng [2^k, 2^(k+1)) chia thành 8 bucket
+ * bằng nhau nên sai số percentile tối đa khoảng 12.5%, đủ để thấy p99 tăng
+ * sau mỗi lần deploy. record() chỉ là vài phép dịch bit và một lần
+ * incrementAndGet, an toàn khi nhiều thread ghi cùng lúc.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Giới hạn trên ~ 2^40 µs (khoảng 12 ngày), lớn hơn bị dồn vào bucket cuối
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Ghi một lần đo (nano giây)
+     */
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(bucketIndex(micros));
+        count.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalMicros.sum() / 1000.0;
+    }
+
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0.0 : totalMicros.sum() / 1000.0 / n;
+    }
+
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * Percentile (0-100) tính bằng mili giây, lấy cận trên của bucket chứa nó
+     */
+    public double percentileMillis(double percentile) {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Số lần đo có giá trị <= bound mili giây (dùng cho bucket tích lũy kiểu Prometheus)
+     */
+    public long countAtOrBelow(double boundMillis) {
+        long boundMicros = (long) (boundMillis * 1000);
+        long result = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (bucketUpperBound(i) > boundMicros) {
+                break;
+            }
+            result += buckets.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * count, mean, p50, p90, p99, max (ms)
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", getCount());
+        summary.put("meanMs", round(getMeanMillis()));
+        summary.put("p50Ms", round(percentileMillis(50)));
+        summary.put("p90Ms", round(percentileMillis(90)));
+        summary.put("p99Ms", round(percentileMillis(99)));
+        summary.put("maxMs", round(getMaxMillis()));
+        return summary;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) (micros >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+    static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,153 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * MetricsExporter - Xuất metric theo định dạng text của Prometheus (0.0.4)
+ *
+ * Tên metric giống Micrometer / Spring Boot Actuator để dashboard có sẵn
+ * dùng được: http_server_requests_seconds, mongodb_driver_commands_seconds,
+ * jvm_memory_*, jvm_gc_*, jvm_threads_*.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class MetricsExporter {
+
+    // Cận trên các bucket (giây), như Micrometer với percentiles-histogram
+    private static final double[] BUCKETS_SECONDS = {
+            0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+
+    @Autowired
+    private RequestMetrics requestMetrics;
+
+    @Autowired
+    private MongoQueryCounter mongoQueryCounter;
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(8192);
+
+        header(out, "http_server_requests_seconds", "histogram", "Thời gian xử lý HTTP request");
+        requestMetrics.forEachTimer((key, histogram) -> {
+            Map<String, String> labels = new LinkedHashMap<>();
+            labels.put("method", key.method());
+            labels.put("uri", key.route());
+            labels.put("status", key.status());
+            histogram(out, "http_server_requests_seconds", labels, histogram);
+        });
+        header(out, "http_server_requests_seconds_max", "gauge", "Request lâu nhất");
+        requestMetrics.forEachTimer((key, histogram) -> {
+            Map<String, String> labels = new LinkedHashMap<>();
+            labels.put("method", key.method());
+            labels.put("uri", key.route());
+            labels.put("status", key.status());
+            sample(out, "http_server_requests_seconds_max", labels, histogram.getMaxMillis() / 1000);
+        });
+
+        header(out, "mongodb_driver_commands_seconds", "histogram", "Thời gian các lệnh MongoDB");
+        mongoQueryCounter.forEachCommandTimer(
+                (tags, histogram) -> histogram(out, "mongodb_driver_commands_seconds", tags, histogram));
+
+        writeJvm(out);
+        return out.toString();
+    }
+
+    // ===== JVM =====
+
+    private static void writeJvm(StringBuilder out) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+
+        header(out, "jvm_memory_used_bytes", "gauge", "Bộ nhớ đang dùng");
+        sample(out, "jvm_memory_used_bytes", Map.of("area", "heap"), heap.getUsed());
+        sample(out, "jvm_memory_used_bytes", Map.of("area", "nonheap"), nonHeap.getUsed());
+        header(out, "jvm_memory_committed_bytes", "gauge", "Bộ nhớ đã cấp cho JVM");
+        sample(out, "jvm_memory_committed_bytes", Map.of("area", "heap"), heap.getCommitted());
+        sample(out, "jvm_memory_committed_bytes", Map.of("area", "nonheap"), nonHeap.getCommitted());
+        header(out, "jvm_memory_max_bytes", "gauge", "Giới hạn bộ nhớ (-1 nếu không giới hạn)");
+        sample(out, "jvm_memory_max_bytes", Map.of("area", "heap"), heap.getMax());
+        sample(out, "jvm_memory_max_bytes", Map.of("area", "nonheap"), nonHeap.getMax());
+
+        header(out, "jvm_gc_collection_seconds_count", "counter", "Số lần GC theo collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collection_seconds_count", Map.of("gc", gc.getName()), gc.getCollectionCount());
+        }
+        header(out, "jvm_gc_collection_seconds_sum", "counter", "Tổng thời gian GC theo collector");
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            sample(out, "jvm_gc_collection_seconds_sum", Map.of("gc", gc.getName()), gc.getCollectionTime() / 1000.0);
+        }
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        header(out, "jvm_threads_live_threads", "gauge", "Số platform thread đang sống");
+        sample(out, "jvm_threads_live_threads", Map.of(), threads.getThreadCount());
+        header(out, "jvm_threads_daemon_threads", "gauge", "Số daemon thread");
+        sample(out, "jvm_threads_daemon_threads", Map.of(), threads.getDaemonThreadCount());
+        header(out, "jvm_threads_peak_threads", "gauge", "Số thread cao nhất từ lúc khởi động");
+        sample(out, "jvm_threads_peak_threads", Map.of(), threads.getPeakThreadCount());
+
+        header(out, "process_uptime_seconds", "gauge", "Thời gian chạy của tiến trình");
+        sample(out, "process_uptime_seconds", Map.of(), ManagementFactory.getRuntimeMXBean().getUptime() / 1000.0);
+        header(out, "system_load_average_1m", "gauge", "Load average 1 phút (-1 nếu không hỗ trợ)");
+        sample(out, "system_load_average_1m", Map.of(),
+                ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage());
+    }
+
+    // ===== Định dạng text =====
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void histogram(StringBuilder out, String name, Map<String, String> labels,
+            LatencyHistogram histogram) {
+        // Đọc count trước bucket: bucket +Inf luôn >= các bucket khác
+        long count = histogram.getCount();
+        for (double bound : BUCKETS_SECONDS) {
+            Map<String, String> bucketLabels = new LinkedHashMap<>(labels);
+            bucketLabels.put("le", Double.toString(bound));
+            sample(out, name + "_bucket", bucketLabels, Math.min(count, histogram.countAtOrBelow(bound * 1000)));
+        }
+        Map<String, String> infLabels = new LinkedHashMap<>(labels);
+        infLabels.put("le", "+Inf");
+        sample(out, name + "_bucket", infLabels, count);
+        sample(out, name + "_count", labels, count);
+        sample(out, name + "_sum", labels, histogram.getTotalMillis() / 1000);
+    }
+
+    private static void sample(StringBuilder out, String name, Map<String, String> labels, double value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> label : labels.entrySet()) {
+                if (!first) {
+                    out.append(',');
+                }
+                first = false;
+                out.append(label.getKey()).append("=\"").append(escape(label.getValue())).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
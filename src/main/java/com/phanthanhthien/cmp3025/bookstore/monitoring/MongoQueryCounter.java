@@ -0,0 +1,308 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * MongoQueryCounter - Đo các lệnh MongoDB gửi đi
+ *
+ * Driver đồng bộ gọi CommandListener ngay trên thread thực thi truy vấn,
+ * nên bộ đếm ThreadLocal phản ánh đúng số round trip và thời gian MongoDB
+ * của request đang xử lý. Ngoài ra giữ:
+ * - histogram độ trễ theo collection / lệnh / kết quả
+ * - thống kê số truy vấn theo route (QueryCountFilter ghi vào)
+ * - log các lệnh chậm hơn mongo-monitoring.slow-command-ms
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class MongoQueryCounter implements CommandListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(MongoQueryCounter.class);
+
+    // Lệnh bắt tay / xác thực, không phải truy vấn của ứng dụng
+    private static final Set<String> IGNORED_COMMANDS = Set.of(
+            "hello", "ismaster", "isMaster", "ping", "saslStart", "saslContinue", "authenticate",
+            "buildInfo", "endSessions");
+
+    private static final ThreadLocal<RequestStats> CURRENT = ThreadLocal.withInitial(RequestStats::new);
+
+    @Value("${mongo-monitoring.slow-command-ms:100}")
+    private long slowCommandMs;
+
+    @Value("${mongo-monitoring.slow-log-size:100}")
+    private int slowLogSize;
+
+    // requestId của lệnh -> (collection, lệnh), chờ sự kiện succeeded / failed
+    private final Map<Integer, CommandInfo> inFlight = new ConcurrentHashMap<>();
+
+    // "collection|lệnh|SUCCESS" -> histogram
+    private final Map<CommandKey, LatencyHistogram> commandTimers = new ConcurrentHashMap<>();
+
+    // "GET /sach/chi-tiet/{id}" -> thống kê
+    private final Map<String, RouteStats> routeStats = new ConcurrentHashMap<>();
+
+    private final Deque<SlowCommand> slowCommands = new ArrayDeque<>();
+
+    // ===== CommandListener =====
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        String command = event.getCommandName();
+        if (IGNORED_COMMANDS.contains(command)) {
+            return;
+        }
+        CURRENT.get().queries++;
+        // Document của lệnh chỉ hợp lệ trong callback, lấy tên collection ngay
+        BsonDocument document = event.getCommand();
+        inFlight.put(event.getRequestId(), new CommandInfo(command, collectionOf(command, document),
+                isAwaitData(command, document)));
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        completed(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS), "SUCCESS");
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        completed(event.getRequestId(), event.getElapsedTime(TimeUnit.NANOSECONDS), "FAILED");
+    }
+
+    private void completed(int requestId, long nanos, String status) {
+        CommandInfo info = inFlight.remove(requestId);
+        if (info == null) {
+            return;
+        }
+        RequestStats request = CURRENT.get();
+        request.nanos += nanos;
+
+        commandTimers.computeIfAbsent(new CommandKey(info.collection(), info.command(), status),
+                key -> new LatencyHistogram()).record(nanos);
+
+        // getMore của change stream chờ dữ liệu mới (maxTimeMS) nên luôn "chậm", bỏ qua
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (millis >= slowCommandMs && !info.awaitData()) {
+            String source = request.route != null ? request.route : Thread.currentThread().getName();
+            logger.warn("🐢 MongoDB chậm: {} {} mất {} ms ({})", info.command(), info.collection(), millis, source);
+            synchronized (slowCommands) {
+                slowCommands.addFirst(new SlowCommand(LocalDateTime.now(), info.command(), info.collection(),
+                        millis, status, source));
+                while (slowCommands.size() > slowLogSize) {
+                    slowCommands.removeLast();
+                }
+            }
+        }
+    }
+
+    private static String collectionOf(String command, BsonDocument document) {
+        BsonValue value = "getMore".equals(command) ? document.get("collection") : document.get(command);
+        return value != null && value.isString() ? value.asString().getValue() : "-";
+    }
+
+    private static boolean isAwaitData(String command, BsonDocument document) {
+        return "getMore".equals(command) && document.containsKey("maxTimeMS");
+    }
+
+    // ===== Bộ đếm theo request (ThreadLocal) =====
+
+    /**
+     * Đặt lại bộ đếm về 0 (gọi khi bắt đầu request)
+     */
+    public static void reset() {
+        reset(null);
+    }
+
+    /**
+     * Đặt lại bộ đếm và ghi nhớ request đang chạy (dùng trong log lệnh chậm)
+     */
+    public static void reset(String route) {
+        RequestStats stats = CURRENT.get();
+        stats.queries = 0;
+        stats.nanos = 0;
+        stats.route = route;
+    }
+
+    /**
+     * Số lệnh MongoDB đã gửi kể từ lần reset gần nhất
+     */
+    public static int current() {
+        return CURRENT.get().queries;
+    }
+
+    /**
+     * Tổng thời gian (nano giây) chờ MongoDB kể từ lần reset gần nhất
+     */
+    public static long currentNanos() {
+        return CURRENT.get().nanos;
+    }
+
+    /**
+     * Giải phóng ThreadLocal khi request kết thúc
+     */
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // ===== Thống kê theo route =====
+
+    /**
+     * Ghi nhận một request đã xong: số truy vấn và thời gian MongoDB của route
+     */
+    public void recordRequest(String route, int queries, long mongoNanos, boolean overBudget) {
+        RouteStats stats = routeStats.computeIfAbsent(route, key -> new RouteStats());
+        stats.requests.increment();
+        stats.queries.add(queries);
+        stats.maxQueries.accumulate(queries);
+        stats.mongoTime.record(mongoNanos);
+        if (overBudget) {
+            stats.overBudget.increment();
+        }
+    }
+
+    /**
+     * Thống kê theo route, nhiều truy vấn trung bình nhất trước
+     */
+    public List<Map<String, Object>> getRouteStats() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        routeStats.forEach((route, stats) -> {
+            long requests = stats.requests.sum();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("route", route);
+            row.put("requests", requests);
+            row.put("avgQueries", requests == 0 ? 0.0 : LatencyHistogram.round((double) stats.queries.sum() / requests));
+            row.put("maxQueries", stats.maxQueries.get());
+            row.put("overBudget", stats.overBudget.sum());
+            row.put("mongoTime", stats.mongoTime.summary());
+            result.add(row);
+        });
+        result.sort(Comparator.comparingDouble(row -> -(double) row.get("avgQueries")));
+        return result;
+    }
+
+    /**
+     * Histogram theo collection / lệnh, tổng thời gian lớn nhất trước
+     */
+    public List<Map<String, Object>> getCommandStats() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        commandTimers.entrySet().stream()
+                .sorted(Comparator.comparingDouble(entry -> -entry.getValue().getTotalMillis()))
+                .forEach(entry -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("collection", entry.getKey().collection());
+                    row.put("command", entry.getKey().command());
+                    row.put("status", entry.getKey().status());
+                    row.put("totalMs", LatencyHistogram.round(entry.getValue().getTotalMillis()));
+                    row.putAll(entry.getValue().summary());
+                    result.add(row);
+                });
+        return result;
+    }
+
+    public List<SlowCommand> getSlowCommands() {
+        synchronized (slowCommands) {
+            return new ArrayList<>(slowCommands);
+        }
+    }
+
+    /**
+     * Metric theo tên / tag như Micrometer (MongoMetricsCommandListener):
+     * mongodb.driver.commands{collection, command, status} và
+     * mongodb.requests.queries{route}
+     */
+    public List<Map<String, Object>> getMetrics() {
+        List<Map<String, Object>> metrics = new ArrayList<>();
+        forEachCommandTimer((tags, histogram) -> metrics.add(timer("mongodb.driver.commands", tags, histogram)));
+        routeStats.forEach((route, stats) -> {
+            Map<String, Object> metric = new LinkedHashMap<>();
+            metric.put("name", "mongodb.requests.queries");
+            metric.put("type", "DISTRIBUTION_SUMMARY");
+            metric.put("tags", Map.of("route", route));
+            metric.put("count", stats.requests.sum());
+            metric.put("total", stats.queries.sum());
+            metric.put("max", stats.maxQueries.get());
+            metrics.add(metric);
+            metrics.add(timer("mongodb.requests.time", Map.of("route", route), stats.mongoTime));
+        });
+        return metrics;
+    }
+
+    /**
+     * Duyệt histogram theo tag (collection, command, status), dùng khi xuất metric dạng text
+     */
+    public void forEachCommandTimer(BiConsumer<Map<String, String>, LatencyHistogram> action) {
+        commandTimers.forEach((key, histogram) -> {
+            Map<String, String> tags = new LinkedHashMap<>();
+            tags.put("collection", key.collection());
+            tags.put("command", key.command());
+            tags.put("status", key.status());
+            action.accept(tags, histogram);
+        });
+    }
+
+    private static Map<String, Object> timer(String name, Map<String, String> tags, LatencyHistogram histogram) {
+        Map<String, Object> metric = new LinkedHashMap<>();
+        metric.put("name", name);
+        metric.put("type", "TIMER");
+        metric.put("tags", tags);
+        metric.put("count", histogram.getCount());
+        metric.put("totalTimeMs", LatencyHistogram.round(histogram.getTotalMillis()));
+        metric.put("maxMs", histogram.getMaxMillis());
+        metric.put("p50Ms", histogram.percentileMillis(50));
+        metric.put("p99Ms", histogram.percentileMillis(99));
+        return metric;
+    }
+
+    // ===== Kiểu dữ liệu nội bộ =====
+
+    private static class RequestStats {
+        private int queries;
+        private long nanos;
+        private String route;
+    }
+
+    private record CommandInfo(String command, String collection, boolean awaitData) {
+    }
+
+    private record CommandKey(String collection, String command, String status) {
+    }
+
+    private static class RouteStats {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAccumulator maxQueries = new LongAccumulator(Math::max, 0);
+        private final LongAdder overBudget = new LongAdder();
+        private final LatencyHistogram mongoTime = new LatencyHistogram();
+    }
+
+    /**
+     * Một lệnh chậm trong log gần đây
+     */
+    public record SlowCommand(LocalDateTime at, String command, String collection, long millis,
+            String status, String source) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * PaymentStockEvent - JFR event cho bước trừ tồn kho khi thanh toán thành công
+ *
+ * Phát từ applyPaymentResult, nên bao gồm cả callback (processCallback)
+ * lẫn IPN do outbox worker xử lý.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Name("com.phanthanhthien.bookstore.PaymentStockUpdate")
+@Label("Payment Stock Update")
+@Category({ "Bookstore", "Payment" })
+@Description("bulkWrite trừ tồn kho cho một đơn đã thanh toán")
+@StackTrace(false)
+public class PaymentStockEvent extends Event {
+
+    @Label("Order Id")
+    public String orderId;
+
+    @Label("Transaction Id")
+    public String transId;
+
+    @Label("Item Count")
+    @Description("Số sách khác nhau trong đơn")
+    public int itemCount;
+
+    @Label("Failed Items")
+    @Description("Số sách không đủ tồn kho hoặc không tồn tại (đã hoàn tác)")
+    public int failedItems;
+}
@@ -0,0 +1,74 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QueryCountFilter - Gán số truy vấn và thời gian MongoDB của mỗi request cho route
+ *
+ * Request vượt ngân sách (mongo-monitoring.request-query-budget truy vấn
+ * hoặc request-time-budget-ms thời gian chờ MongoDB) được ghi log cảnh báo.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class QueryCountFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private MongoQueryCounter mongoQueryCounter;
+
+    @Value("${mongo-monitoring.request-query-budget:10}")
+    private int queryBudget;
+
+    @Value("${mongo-monitoring.request-time-budget-ms:200}")
+    private long timeBudgetMs;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+            HttpServletResponse response,
+            FilterChain filterChain)
+            throws ServletException, IOException {
+
+        MongoQueryCounter.reset(request.getMethod() + " " + request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int queries = MongoQueryCounter.current();
+            long mongoNanos = MongoQueryCounter.currentNanos();
+            long mongoMs = TimeUnit.NANOSECONDS.toMillis(mongoNanos);
+            String route = RouteTemplate.of(request, response);
+            boolean overBudget = queries > queryBudget || mongoMs > timeBudgetMs;
+
+            mongoQueryCounter.recordRequest(route, queries, mongoNanos, overBudget);
+            if (overBudget) {
+                log.warn("⚠️ {} vượt ngân sách MongoDB: {} truy vấn (tối đa {}), {} ms (tối đa {} ms) - {}",
+                        route, queries, queryBudget, mongoMs, timeBudgetMs, request.getRequestURI());
+            } else {
+                log.debug("{} {} - {} truy vấn MongoDB, {} ms",
+                        request.getMethod(), request.getRequestURI(), queries, mongoMs);
+            }
+            MongoQueryCounter.clear();
+        }
+    }
+
+    /**
+     * Bỏ qua static resources
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return path.startsWith("/css/") || path.startsWith("/js/") || path.startsWith("/images/");
+    }
+}
@@ -0,0 +1,120 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * RequestMetrics - Histogram thời gian xử lý request theo route và nhóm status
+ *
+ * - Histogram tích lũy theo (method, route, 2xx/3xx/4xx/5xx) từ lúc khởi động,
+ *   xuất ra /metrics
+ * - Cửa sổ trượt cho biểu đồ ở dashboard: cứ request-metrics.sample-seconds
+ *   lại đổi sang histogram mới và lưu p50 / p99 / req/s của cửa sổ vừa xong,
+ *   nên thấy được p99 tăng ngay sau một lần deploy
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class RequestMetrics {
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+
+    @Value("${request-metrics.timeline-size:90}")
+    private int timelineSize;
+
+    private final Map<RouteKey, LatencyHistogram> timers = new ConcurrentHashMap<>();
+
+    // Histogram của cửa sổ hiện tại, sample() đổi sang cái mới (không khóa)
+    private final AtomicReference<LatencyHistogram> window = new AtomicReference<>(new LatencyHistogram());
+    private volatile long windowStartNanos = System.nanoTime();
+
+    private final Deque<Map<String, Object>> timeline = new ArrayDeque<>();
+
+    /**
+     * Ghi một request đã xử lý xong
+     */
+    public void record(String method, String route, int status, long nanos) {
+        timers.computeIfAbsent(new RouteKey(method, route, statusClass(status)), key -> new LatencyHistogram())
+                .record(nanos);
+        window.get().record(nanos);
+    }
+
+    /**
+     * Chốt cửa sổ hiện tại thành một điểm trên biểu đồ
+     */
+    @Scheduled(fixedRateString = "${request-metrics.sample-seconds:10}", timeUnit = TimeUnit.SECONDS)
+    public void sample() {
+        long now = System.nanoTime();
+        LatencyHistogram finished = window.getAndSet(new LatencyHistogram());
+        double seconds = Math.max(1e-3, (now - windowStartNanos) / 1e9);
+        windowStartNanos = now;
+
+        Map<String, Object> point = new LinkedHashMap<>();
+        point.put("time", LocalTime.now().format(TIME_FORMAT));
+        point.put("requests", finished.getCount());
+        point.put("rps", LatencyHistogram.round(finished.getCount() / seconds));
+        point.put("p50Ms", LatencyHistogram.round(finished.percentileMillis(50)));
+        point.put("p99Ms", LatencyHistogram.round(finished.percentileMillis(99)));
+        point.put("heapUsedMb", ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024));
+        point.put("liveThreads", ManagementFactory.getThreadMXBean().getThreadCount());
+
+        synchronized (timeline) {
+            timeline.addLast(point);
+            while (timeline.size() > timelineSize) {
+                timeline.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Các điểm của biểu đồ, cũ nhất trước
+     */
+    public List<Map<String, Object>> getTimeline() {
+        synchronized (timeline) {
+            return new ArrayList<>(timeline);
+        }
+    }
+
+    /**
+     * Route chậm nhất theo p99
+     */
+    public List<Map<String, Object>> getSlowestRoutes(int limit) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        timers.forEach((key, histogram) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("route", key.method() + " " + key.route());
+            row.put("status", key.status());
+            row.putAll(histogram.summary());
+            rows.add(row);
+        });
+        rows.sort((a, b) -> Double.compare((double) b.get("p99Ms"), (double) a.get("p99Ms")));
+        return rows.size() > limit ? rows.subList(0, limit) : rows;
+    }
+
+    public void forEachTimer(BiConsumer<RouteKey, LatencyHistogram> action) {
+        timers.forEach(action);
+    }
+
+    private static String statusClass(int status) {
+        return status >= 100 && status < 600 ? (status / 100) + "xx" : "UNKNOWN";
+    }
+
+    public record RouteKey(String method, String route, String status) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * RouteTemplate - Nhãn route của request để gom thống kê
+ *
+ * Dùng pattern của handler (/sach/chi-tiet/{id}) thay vì URI thật để số
+ * nhãn không tăng theo ID. Request không khớp handler nào được gom như
+ * Micrometer: NOT_FOUND, REDIRECTION hoặc UNKNOWN; trang trả thẳng từ
+ * PageCacheFilter gom vào PAGE_CACHE.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public final class RouteTemplate {
+
+    private RouteTemplate() {
+    }
+
+    /**
+     * "GET /sach/chi-tiet/{id}" (gọi sau khi DispatcherServlet xử lý xong)
+     */
+    public static String of(HttpServletRequest request, HttpServletResponse response) {
+        return request.getMethod() + " " + pattern(request, response);
+    }
+
+    /**
+     * Chỉ phần pattern: "/sach/chi-tiet/{id}"
+     */
+    public static String pattern(HttpServletRequest request, HttpServletResponse response) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        if ("HIT".equals(response.getHeader("X-Page-Cache"))) {
+            return "PAGE_CACHE";
+        }
+        int status = response.getStatus();
+        if (status == 404) {
+            return "NOT_FOUND";
+        }
+        if (status >= 300 && status < 400) {
+            return "REDIRECTION";
+        }
+        return "UNKNOWN";
+    }
+}
@@ -0,0 +1,115 @@
+package com.phanthanhthien.cmp3025.bookstore.monitoring;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * VirtualThreadPinningMonitor - Phát hiện virtual thread bị pin vào carrier thread
+ *
+ * Virtual thread bị pin khi block bên trong synchronized hoặc native frame,
+ * lúc đó carrier thread bị giữ và throughput giảm về như pool platform thread.
+ * Lắng nghe JFR event jdk.VirtualThreadPinned ngay trong tiến trình, ghi log
+ * frame đầu tiên thuộc code ứng dụng và đếm số lần theo frame.
+ *
+ * Chỉ chạy khi spring.threads.virtual.enabled=true.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.phanthanhthien.";
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${virtual-threads.pinning-monitor.enabled:true}")
+    private boolean enabled;
+
+    @Value("${virtual-threads.pinning-monitor.threshold-ms:20}")
+    private long thresholdMs;
+
+    // frame -> số lần bị pin
+    private final Map<String, AtomicLong> pinnedByFrame = new ConcurrentHashMap<>();
+
+    private RecordingStream stream;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!virtualThreads || !enabled) {
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMs)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("🧵 Chế độ virtual thread: theo dõi pinning lâu hơn {} ms", thresholdMs);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    public boolean isVirtualThreadMode() {
+        return virtualThreads;
+    }
+
+    /**
+     * Số lần bị pin theo frame, nhiều nhất trước
+     */
+    public Map<String, Long> getPinnedCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        pinnedByFrame.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().get(), a.getValue().get()))
+                .forEach(entry -> counts.put(entry.getKey(), entry.getValue().get()));
+        return counts;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        String frame = describe(event.getStackTrace());
+        long count = pinnedByFrame.computeIfAbsent(frame, key -> new AtomicLong()).incrementAndGet();
+        // Tránh log tràn khi một chỗ bị pin liên tục
+        if (count == 1 || count % 100 == 0) {
+            log.warn("📌 Virtual thread bị pin {} ms tại {} (lần {})",
+                    event.getDuration().toMillis(), frame, count);
+        }
+    }
+
+    /**
+     * Frame đầu tiên thuộc code ứng dụng, không có thì lấy frame trên cùng
+     */
+    private static String describe(RecordedStackTrace stackTrace) {
+        if (stackTrace == null || stackTrace.getFrames().isEmpty()) {
+            return "unknown";
+        }
+        RecordedFrame chosen = stackTrace.getFrames().get(0);
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            if (frame.isJavaFrame() && frame.getMethod().getType().getName().startsWith(APP_PACKAGE)) {
+                chosen = frame;
+                break;
+            }
+        }
+        return chosen.getMethod().getType().getName() + "." + chosen.getMethod().getName()
+                + ":" + chosen.getLineNumber();
+    }
+}
@@ -0,0 +1,17 @@
+package com.phanthanhthien.cmp3025.bookstore.repository;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.ImportJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * ImportJob Repository
+ */
+@Repository
+public interface ImportJobRepository extends MongoRepository<ImportJob, String> {
+    List<ImportJob> findByStatusIn(List<String> statuses);
+
+    List<ImportJob> findTop20ByOrderByCreatedAtDesc();
+}
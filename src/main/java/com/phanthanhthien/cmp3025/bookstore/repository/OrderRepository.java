@@ -1,6 +1,8 @@
 package com.phanthanhthien.cmp3025.bookstore.repository;
 
 import com.phanthanhthien.cmp3025.bookstore.entities.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
@@ -15,4 +17,9 @@ public interface OrderRepository extends MongoRepository<Order, String> {
     List<Order> findByUserIdOrderByCreatedAtDesc(String userId);
 
     Optional<Order> findByMomoRequestId(String momoRequestId);
+
+    /**
+     * Lấy đơn hàng theo trang, không chạy count toàn collection
+     */
+    Slice<Order> findAllBy(Pageable pageable);
 }
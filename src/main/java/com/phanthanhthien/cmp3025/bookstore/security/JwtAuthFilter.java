@@ -1,5 +1,6 @@
 package com.phanthanhthien.cmp3025.bookstore.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -31,6 +32,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private JwtTokenCache jwtTokenCache;
+
     @Autowired
     @Lazy
     private UserDetailsService userDetailsService;
@@ -44,21 +48,29 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         try {
             // Get JWT from Authorization header
             String authHeader = request.getHeader("Authorization");
-            String token = null;
-            String username = null;
 
             // Check if header exists and starts with "Bearer "
-            if (authHeader != null && authHeader.startsWith("Bearer ")) {
-                token = authHeader.substring(7); // Remove "Bearer " prefix
-                username = jwtUtils.extractUsername(token);
-            }
+            if (authHeader != null && authHeader.startsWith("Bearer ")
+                    && SecurityContextHolder.getContext().getAuthentication() == null) {
+                String token = authHeader.substring(7); // Remove "Bearer " prefix
 
-            // If token exists and no authentication in context
-            if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                // Repeat request with same token: skip crypto and user lookup
+                UserDetails userDetails = jwtTokenCache.get(token);
+                if (userDetails == null) {
+                    // Parse once - verifies signature and expiration
+                    Claims claims = jwtUtils.extractAllClaims(token);
+                    String username = claims.getSubject();
+                    if (username != null) {
+                        userDetails = userDetailsService.loadUserByUsername(username);
+                        if (userDetails.isEnabled()) {
+                            jwtTokenCache.put(token, userDetails, claims.getExpiration().getTime());
+                        } else {
+                            userDetails = null;
+                        }
+                    }
+                }
 
-                // Validate token
-                if (jwtUtils.validateToken(token, userDetails)) {
+                if (userDetails != null) {
                     UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                             userDetails,
                             null,
@@ -67,7 +79,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                     authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                     SecurityContextHolder.getContext().setAuthentication(authToken);
 
-                    log.debug("JWT authenticated user: {}", username);
+                    log.debug("JWT authenticated user: {}", userDetails.getUsername());
                 }
             }
         } catch (Exception e) {
@@ -0,0 +1,108 @@
+package com.phanthanhthien.cmp3025.bookstore.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verified JWT cache
+ * Stores the resolved principal of already verified tokens, keyed by the
+ * SHA-256 hash of the token and valid until the token's exp claim
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Slf4j
+@Component
+public class JwtTokenCache {
+
+    @Value("${jwt.cache.max-size:10000}")
+    private int maxSize;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Cached principal of a verified token
+     */
+    public static final class Entry {
+        private final UserDetails userDetails;
+        private final long expiresAtMillis;
+
+        private Entry(UserDetails userDetails, long expiresAtMillis) {
+            this.userDetails = userDetails;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public UserDetails getUserDetails() {
+            return userDetails;
+        }
+
+        public boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    /**
+     * Get cached principal for token, or null if absent / expired
+     */
+    public UserDetails get(String token) {
+        String key = hash(token);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.getUserDetails();
+    }
+
+    /**
+     * Cache a verified token until its expiration time
+     */
+    public void put(String token, UserDetails userDetails, long expiresAtMillis) {
+        if (entries.size() >= maxSize) {
+            evictExpired();
+            if (entries.size() >= maxSize) {
+                // Still full - skip caching rather than grow unbounded
+                log.debug("JWT cache is full ({} entries)", entries.size());
+                return;
+            }
+        }
+        entries.put(hash(token), new Entry(userDetails, expiresAtMillis));
+    }
+
+    /**
+     * Remove a token from cache (e.g. on logout)
+     */
+    public void invalidate(String token) {
+        entries.remove(hash(token));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,631 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.Category;
+import com.phanthanhthien.cmp3025.bookstore.entities.ImportJob;
+import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.repository.ImportJobRepository;
+import com.phanthanhthien.cmp3025.bookstore.utils.ThreadFactories;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.WriteModel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * BookImportService - Nhập sách hàng loạt từ file CSV / XLSX
+ *
+ * - Đọc file kiểu streaming: CSV đọc từng dòng, XLSX dùng POI event model (SAX)
+ *   nên không nạp cả workbook vào bộ nhớ
+ * - Mỗi batch: kiểm tra các dòng song song, giữ trước dải ID bằng một lệnh
+ *   CounterService.reserveRange, ghi bằng một bulkWrite unordered
+ * - Tên danh mục được tra một lần khi bắt đầu job
+ * - Tiến độ lưu trong import_jobs sau mỗi batch; job bị ngắt (tắt server,
+ *   lỗi) được chạy tiếp từ dòng đã ghi xong. Batch ghi dở được ghi lại bằng
+ *   đúng dải ID cũ (replace + upsert theo _id) nên không tạo sách trùng.
+ *
+ * Cột nhận diện theo header (không phân biệt hoa thường / dấu):
+ * title | tiêu đề | tên sách, author | tác giả, description | mô tả,
+ * price | giá, stock | tồn kho | số lượng, category | danh mục,
+ * imageUrl | hình ảnh. Cột khác (vd. ID, Ngày tạo của file xuất Excel) bị bỏ qua.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Service
+public class BookImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookImportService.class);
+
+    private static final int MAX_STORED_ERRORS = 100;
+
+    private static final Map<String, String> HEADER_ALIASES = new HashMap<>();
+
+    static {
+        for (String alias : List.of("title", "tieu de", "ten sach")) {
+            HEADER_ALIASES.put(alias, "title");
+        }
+        for (String alias : List.of("author", "tac gia")) {
+            HEADER_ALIASES.put(alias, "author");
+        }
+        for (String alias : List.of("description", "mo ta")) {
+            HEADER_ALIASES.put(alias, "description");
+        }
+        for (String alias : List.of("price", "gia")) {
+            HEADER_ALIASES.put(alias, "price");
+        }
+        for (String alias : List.of("stock", "ton kho", "so luong")) {
+            HEADER_ALIASES.put(alias, "stock");
+        }
+        for (String alias : List.of("category", "danh muc")) {
+            HEADER_ALIASES.put(alias, "category");
+        }
+        for (String alias : List.of("imageurl", "image", "hinh anh", "anh")) {
+            HEADER_ALIASES.put(alias, "imageUrl");
+        }
+    }
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CounterService counterService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    @Autowired
+    private CategoryBookCounter categoryBookCounter;
+
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Value("${book-import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${book-import.upload-dir:${java.io.tmpdir}/bookstore-imports}")
+    private String uploadDir;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Một job chạy tại một thời điểm, các job khác xếp hàng
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadExecutor(ThreadFactories.named("book-import", virtualThreads));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Job đang chạy dừng giữa chừng, sẽ được chạy tiếp khi khởi động lại
+        executor.shutdownNow();
+    }
+
+    /**
+     * Chạy tiếp các job chưa xong khi ứng dụng khởi động
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        for (ImportJob job : importJobRepository.findByStatusIn(List.of(ImportJob.PENDING, ImportJob.RUNNING))) {
+            logger.info("📥 Chạy tiếp job nhập sách {} từ dòng {}", job.getId(), job.getProcessedRows() + 1);
+            executor.execute(() -> run(job.getId()));
+        }
+    }
+
+    /**
+     * Lưu file upload và xếp job vào hàng đợi
+     */
+    public ImportJob startImport(MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Vui lòng chọn file cần nhập!");
+        }
+        String fileName = Optional.ofNullable(file.getOriginalFilename()).orElse("import");
+        String lowerName = fileName.toLowerCase(Locale.ROOT);
+        String format;
+        if (lowerName.endsWith(".csv")) {
+            format = "CSV";
+        } else if (lowerName.endsWith(".xlsx")) {
+            format = "XLSX";
+        } else {
+            throw new IllegalArgumentException("Chỉ hỗ trợ file .csv hoặc .xlsx");
+        }
+
+        ImportJob job = importJobRepository.save(new ImportJob(fileName, format));
+
+        Path directory = Paths.get(uploadDir);
+        Files.createDirectories(directory);
+        Path target = directory.resolve(job.getId() + "." + format.toLowerCase(Locale.ROOT));
+        file.transferTo(target);
+
+        job.setFilePath(target.toAbsolutePath().toString());
+        importJobRepository.save(job);
+
+        executor.execute(() -> run(job.getId()));
+        logger.info("📥 Đã nhận file {} - job {}", fileName, job.getId());
+        return job;
+    }
+
+    /**
+     * Chạy lại job bị lỗi từ dòng đã ghi xong
+     */
+    public ImportJob resume(String jobId) {
+        ImportJob job = importJobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy job: " + jobId));
+        if (!ImportJob.FAILED.equals(job.getStatus())) {
+            throw new IllegalArgumentException("Chỉ chạy lại được job bị lỗi");
+        }
+        job.setStatus(ImportJob.PENDING);
+        job.setMessage(null);
+        importJobRepository.save(job);
+        executor.execute(() -> run(jobId));
+        return job;
+    }
+
+    public Optional<ImportJob> findJob(String jobId) {
+        return importJobRepository.findById(jobId);
+    }
+
+    public List<ImportJob> recentJobs() {
+        return importJobRepository.findTop20ByOrderByCreatedAtDesc();
+    }
+
+    // ===== Chạy job =====
+
+    private void run(String jobId) {
+        ImportJob job = importJobRepository.findById(jobId).orElse(null);
+        if (job == null || ImportJob.COMPLETED.equals(job.getStatus())) {
+            return;
+        }
+
+        job.setStatus(ImportJob.RUNNING);
+        job.setUpdatedAt(LocalDateTime.now());
+        importJobRepository.save(job);
+
+        long start = System.currentTimeMillis();
+        JobRunner runner = new JobRunner(job, loadCategories());
+        try {
+            Path path = Paths.get(job.getFilePath());
+            if ("XLSX".equals(job.getFormat())) {
+                readXlsx(path, runner);
+            } else {
+                readCsv(path, runner);
+            }
+            runner.flush();
+
+            job.setStatus(ImportJob.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            job.setMessage(null);
+            importJobRepository.save(job);
+            Files.deleteIfExists(path);
+
+            logger.info("✅ Job {} xong: {} sách, {} dòng lỗi trong {} ms", jobId,
+                    job.getInsertedRows(), job.getFailedRows(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            job.setStatus(Thread.currentThread().isInterrupted() ? ImportJob.RUNNING : ImportJob.FAILED);
+            job.setMessage(e.getMessage());
+            job.setUpdatedAt(LocalDateTime.now());
+            importJobRepository.save(job);
+            logger.error("❌ Job nhập sách {} dừng ở dòng {}: {}", jobId, job.getProcessedRows(), e.getMessage());
+        } finally {
+            // bulkWrite không phát Mongo events
+            categoryBookCounter.rebuild();
+            catalogCache.clear();
+        }
+    }
+
+    /**
+     * Tên danh mục (đã bỏ dấu, chữ thường) -> ID, nạp một lần cho cả job
+     */
+    private Map<String, Long> loadCategories() {
+        Map<String, Long> categories = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            categories.put(BookSearchIndex.fold(category.getName()).trim(), category.getId());
+            categories.put(String.valueOf(category.getId()), category.getId());
+        }
+        return categories;
+    }
+
+    // ===== Đọc file =====
+
+    private void readCsv(Path path, JobRunner runner) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                // Không có BOM
+                reader.reset();
+            }
+            List<String> row;
+            while ((row = readCsvRow(reader)) != null) {
+                runner.accept(row);
+            }
+        }
+    }
+
+    /**
+     * Đọc một bản ghi CSV (RFC 4180: dấu phẩy, trường trong ngoặc kép, "" là dấu nháy)
+     *
+     * @return null khi hết file
+     */
+    static List<String> readCsvRow(Reader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next == -1) {
+                            break;
+                        }
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private void readXlsx(Path path, JobRunner runner) throws Exception {
+        try (OPCPackage pkg = OPCPackage.open(path.toFile(), PackageAccess.READ)) {
+            XSSFReader xssfReader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        xssfReader.getStylesTable(), strings, new XlsxRowHandler(runner), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        }
+    }
+
+    /**
+     * Gom các ô của một dòng XLSX (ô trống không được SAX báo -> điền chuỗi rỗng)
+     */
+    private static class XlsxRowHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final JobRunner runner;
+        private final List<String> cells = new ArrayList<>();
+
+        XlsxRowHandler(JobRunner runner) {
+            this.runner = runner;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            runner.accept(new ArrayList<>(cells));
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue);
+        }
+    }
+
+    // ===== Xử lý batch =====
+
+    private record RawRow(long rowNumber, List<String> cells) {
+    }
+
+    private record RowResult(long rowNumber, Book book, String error) {
+    }
+
+    /**
+     * Nhận từng dòng, gom thành batch và ghi xuống MongoDB
+     */
+    private class JobRunner {
+
+        private final ImportJob job;
+        private final Map<String, Long> categories;
+        private final List<RawRow> batch = new ArrayList<>(batchSize);
+
+        // cột -> field của Book, null khi chưa đọc header
+        private Map<Integer, String> columns;
+        private long rowNumber = 0;
+
+        JobRunner(ImportJob job, Map<String, Long> categories) {
+            this.job = job;
+            this.categories = categories;
+        }
+
+        void accept(List<String> cells) {
+            if (cells.stream().allMatch(cell -> cell == null || cell.isBlank())) {
+                return;
+            }
+            if (columns == null) {
+                columns = mapHeader(cells);
+                return;
+            }
+            rowNumber++;
+            // Đã ghi ở lần chạy trước
+            if (rowNumber <= job.getProcessedRows()) {
+                return;
+            }
+            batch.add(new RawRow(rowNumber, cells));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Job bị dừng do ứng dụng tắt");
+            }
+
+            // Kiểm tra song song, giữ nguyên thứ tự dòng
+            List<RowResult> results = batch.parallelStream()
+                    .map(row -> validate(row, columns, categories))
+                    .toList();
+
+            List<RowResult> valid = results.stream().filter(result -> result.book() != null).toList();
+            List<String> errors = new ArrayList<>();
+            results.stream()
+                    .filter(result -> result.error() != null)
+                    .forEach(result -> errors.add("Dòng " + result.rowNumber() + ": " + result.error()));
+
+            long inserted = valid.isEmpty() ? 0 : write(valid, errors);
+
+            job.setProcessedRows(batch.get(batch.size() - 1).rowNumber());
+            job.setInsertedRows(job.getInsertedRows() + inserted);
+            job.setFailedRows(job.getFailedRows() + (batch.size() - inserted));
+            for (String error : errors) {
+                if (job.getErrors().size() >= MAX_STORED_ERRORS) {
+                    break;
+                }
+                job.getErrors().add(error);
+            }
+            job.setPendingFromRow(null);
+            job.setPendingFirstId(null);
+            job.setPendingCount(null);
+            job.setUpdatedAt(LocalDateTime.now());
+            importJobRepository.save(job);
+
+            batch.clear();
+        }
+
+        /**
+         * Gán ID và ghi một batch bằng bulkWrite unordered
+         *
+         * @return số sách đã ghi
+         */
+        private long write(List<RowResult> valid, List<String> errors) {
+            long fromRow = batch.get(0).rowNumber();
+            long firstId;
+            if (job.getPendingFirstId() != null && job.getPendingFromRow() != null
+                    && job.getPendingFromRow() == fromRow && job.getPendingCount() == valid.size()) {
+                // Batch ghi dở ở lần chạy trước -> dùng lại dải ID cũ
+                firstId = job.getPendingFirstId();
+            } else {
+                firstId = counterService.reserveRange("books", valid.size());
+                // Ghi trước dải ID để lần chạy lại không cấp dải mới cho cùng batch
+                job.setPendingFromRow(fromRow);
+                job.setPendingFirstId(firstId);
+                job.setPendingCount(valid.size());
+                importJobRepository.save(job);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            List<WriteModel<Document>> models = new ArrayList<>(valid.size());
+            for (int i = 0; i < valid.size(); i++) {
+                Book book = valid.get(i).book();
+                book.setId(firstId + i);
+                book.setCreatedAt(now);
+                book.setUpdatedAt(now);
+
+                Document document = new Document();
+                mongoTemplate.getConverter().write(book, document);
+                models.add(new ReplaceOneModel<>(Filters.eq("_id", book.getId()), document,
+                        new ReplaceOptions().upsert(true)));
+            }
+
+            boolean[] failed = new boolean[valid.size()];
+            try {
+                mongoTemplate.getCollection("books").bulkWrite(models, new BulkWriteOptions().ordered(false));
+            } catch (MongoBulkWriteException e) {
+                for (BulkWriteError error : e.getWriteErrors()) {
+                    failed[error.getIndex()] = true;
+                    errors.add("Dòng " + valid.get(error.getIndex()).rowNumber() + ": " + error.getMessage());
+                }
+            }
+
+            long inserted = 0;
+            for (int i = 0; i < valid.size(); i++) {
+                if (!failed[i]) {
+                    // bulkWrite không phát Mongo events -> cập nhật chỉ mục tìm kiếm
+                    bookSearchIndex.index(valid.get(i).book());
+                    inserted++;
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private Map<Integer, String> mapHeader(List<String> header) {
+        Map<Integer, String> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String field = HEADER_ALIASES.get(BookSearchIndex.fold(header.get(i)).trim());
+            if (field != null && !columns.containsValue(field)) {
+                columns.put(i, field);
+            }
+        }
+        if (!columns.containsValue("title")) {
+            throw new IllegalArgumentException("File thiếu cột tiêu đề sách (title / Tiêu đề)");
+        }
+        return columns;
+    }
+
+    /**
+     * Kiểm tra và chuyển một dòng thành Book (chạy song song, không truy cập DB)
+     */
+    private RowResult validate(RawRow row, Map<Integer, String> columns, Map<String, Long> categories) {
+        Map<String, String> values = new HashMap<>();
+        columns.forEach((index, field) -> {
+            String value = index < row.cells().size() ? row.cells().get(index) : null;
+            if (value != null && !value.isBlank()) {
+                values.put(field, value.trim());
+            }
+        });
+
+        String title = values.get("title");
+        if (title == null) {
+            return new RowResult(row.rowNumber(), null, "Thiếu tiêu đề sách");
+        }
+
+        BigDecimal price;
+        try {
+            price = parseMoney(values.get("price"));
+        } catch (NumberFormatException e) {
+            return new RowResult(row.rowNumber(), null, "Giá không hợp lệ: " + values.get("price"));
+        }
+        if (price == null || price.signum() < 0) {
+            return new RowResult(row.rowNumber(), null, "Thiếu giá hoặc giá âm");
+        }
+
+        int stock = 0;
+        if (values.containsKey("stock")) {
+            try {
+                stock = parseMoney(values.get("stock")).intValueExact();
+            } catch (ArithmeticException | NumberFormatException e) {
+                return new RowResult(row.rowNumber(), null, "Tồn kho không hợp lệ: " + values.get("stock"));
+            }
+            if (stock < 0) {
+                return new RowResult(row.rowNumber(), null, "Tồn kho không được âm");
+            }
+        }
+
+        Long categoryId = null;
+        String category = values.get("category");
+        if (category != null) {
+            categoryId = categories.get(BookSearchIndex.fold(category).trim());
+            if (categoryId == null) {
+                return new RowResult(row.rowNumber(), null, "Không tìm thấy danh mục: " + category);
+            }
+        }
+
+        Book book = new Book();
+        book.setTitle(title);
+        book.setAuthor(values.get("author"));
+        book.setDescription(values.get("description"));
+        book.setPrice(price);
+        book.setStock(stock);
+        book.setCategoryId(categoryId);
+        book.setImageUrl(values.get("imageUrl"));
+        return new RowResult(row.rowNumber(), book, null);
+    }
+
+    /**
+     * "150,000 VNĐ" / "150.000 ₫" / "150.000đ" / "150000" -> 150000, "1.234,5" / "1,234.5" -> 1234.5
+     *
+     * (?iu): không có cờ u thì (?i) chỉ gộp hoa / thường cho ASCII, "VNĐ" không khớp
+     */
+    static BigDecimal parseMoney(String value) {
+        if (value == null) {
+            return null;
+        }
+        String digits = value.replaceAll("(?iu)vn[dđ]|[₫đ]|[\\s\\u00A0]", "");
+        int lastDot = digits.lastIndexOf('.');
+        int lastComma = digits.lastIndexOf(',');
+        if (digits.matches("\\d{1,3}(\\.\\d{3})+") || digits.matches("\\d{1,3}(,\\d{3})+")) {
+            // Chỉ có dấu phân cách hàng nghìn: 150,000 hoặc 150.000
+            digits = digits.replaceAll("[.,]", "");
+        } else if (lastDot >= 0 && lastComma >= 0) {
+            // Có cả hai: dấu đứng sau là dấu thập phân
+            char decimal = lastDot > lastComma ? '.' : ',';
+            char grouping = decimal == '.' ? ',' : '.';
+            digits = digits.replace(String.valueOf(grouping), "").replace(decimal, '.');
+        } else {
+            digits = digits.replace(",", ".");
+        }
+        return new BigDecimal(digits);
+    }
+}
@@ -0,0 +1,309 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * BookSearchIndex - Chỉ mục đảo ngược (inverted index) trong bộ nhớ cho sách
+ *
+ * - Lập chỉ mục title, author, description (trọng số 3 / 2 / 1)
+ * - Bỏ dấu tiếng Việt: "dac nhan tam" tìm được "Đắc Nhân Tâm"
+ * - Xếp hạng theo BM25, từ cuối của truy vấn được khớp theo tiền tố
+ * - Cập nhật tăng dần qua Mongo lifecycle events khi sách được lưu / xóa
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class BookSearchIndex extends AbstractMongoEventListener<Book> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    // Tham số BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    @Autowired
+    @Lazy
+    private BookRepository bookRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // term -> (bookId -> tần suất có trọng số)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    // bookId -> các term của sách (để gỡ khỏi postings khi cập nhật)
+    private final Map<Long, Map<String, Integer>> documentTerms = new HashMap<>();
+
+    // bookId -> độ dài tài liệu (tổng tần suất có trọng số)
+    private final Map<Long, Integer> documentLengths = new HashMap<>();
+
+    private final Map<Long, Book> documents = new HashMap<>();
+
+    private long totalLength = 0;
+
+    /**
+     * Nạp toàn bộ sách vào chỉ mục khi ứng dụng khởi động xong
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Book> books = bookRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documentTerms.clear();
+            documentLengths.clear();
+            documents.clear();
+            totalLength = 0;
+            for (Book book : books) {
+                addDocument(book);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("🔎 Đã lập chỉ mục tìm kiếm cho {} sách ({} từ khóa)", books.size(), postings.size());
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Book> event) {
+        index(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Book> event) {
+        Document source = event.getSource();
+        Object id = source != null ? source.get("_id") : null;
+        if (id instanceof Number number) {
+            remove(number.longValue());
+        } else {
+            // deleteAll hoặc xóa theo điều kiện phức tạp -> nạp lại toàn bộ
+            rebuild();
+        }
+    }
+
+    /**
+     * Thêm hoặc cập nhật một sách trong chỉ mục
+     */
+    public void index(Book book) {
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Gỡ một sách khỏi chỉ mục
+     */
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Cập nhật tồn kho của bản sao trong chỉ mục
+     * (dùng khi tồn kho thay đổi bằng lệnh update trực tiếp, không qua save)
+     */
+    public void adjustStock(Long bookId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Book book = documents.get(bookId);
+            if (book != null) {
+                int stock = book.getStock() != null ? book.getStock() : 0;
+                book.setStock(stock + delta);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tìm kiếm sách, kết quả sắp xếp theo điểm BM25 giảm dần
+     *
+     * Mọi từ trong truy vấn đều phải khớp; từ cuối cùng được khớp theo tiền tố
+     * để hỗ trợ gõ tới đâu tìm tới đó. Trả về bản sao, không phải đối tượng
+     * trong chỉ mục (adjustStock sửa trực tiếp các đối tượng đó).
+     */
+    public List<Book> search(String keyword) {
+        List<String> queryTerms = tokenize(keyword);
+        if (queryTerms.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            if (n == 0) {
+                return new ArrayList<>();
+            }
+            double avgLength = (double) totalLength / n;
+
+            Map<Long, Double> scores = null;
+            for (int i = 0; i < queryTerms.size(); i++) {
+                boolean prefix = i == queryTerms.size() - 1;
+                Map<Long, Double> termScores = scoreTerm(queryTerms.get(i), prefix, n, avgLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // Giao kết quả: sách phải chứa tất cả các từ
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((id, score) -> score + termScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                    .thenComparing(Map.Entry.comparingByKey()));
+
+            List<Book> results = new ArrayList<>(ranked.size());
+            for (Map.Entry<Long, Double> entry : ranked) {
+                results.add(new Book(documents.get(entry.getKey())));
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Số sách đang có trong chỉ mục
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bỏ dấu, chuyển chữ thường: "Đắc Nhân Tâm" -> "dac nhan tam"
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        normalized = MARKS.matcher(normalized).replaceAll("");
+        return normalized.replace('đ', 'd').replace('Đ', 'D').toLowerCase(Locale.ROOT);
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : NON_WORD.split(fold(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    // ===== Các hàm nội bộ - gọi khi đang giữ lock =====
+
+    private Map<Long, Double> scoreTerm(String term, boolean prefix, int n, double avgLength) {
+        Map<Long, Double> scores = new HashMap<>();
+        Map<String, Map<Long, Integer>> matched = prefix
+                ? postings.subMap(term, true, term + Character.MAX_VALUE, false)
+                : (postings.containsKey(term) ? Map.of(term, postings.get(term)) : Map.of());
+
+        for (Map<Long, Integer> docs : matched.values()) {
+            int df = docs.size();
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            for (Map.Entry<Long, Integer> posting : docs.entrySet()) {
+                int length = documentLengths.getOrDefault(posting.getKey(), 0);
+                double tf = posting.getValue();
+                double score = idf * (tf * (K1 + 1)) / (tf + K1 * (1 - B + B * length / avgLength));
+                // Với khớp tiền tố, lấy term có điểm cao nhất cho mỗi sách
+                scores.merge(posting.getKey(), score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    private void addDocument(Book book) {
+        Map<String, Integer> terms = new HashMap<>();
+        addField(terms, book.getTitle(), TITLE_WEIGHT);
+        addField(terms, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(terms, book.getDescription(), DESCRIPTION_WEIGHT);
+
+        int length = 0;
+        for (Map.Entry<String, Integer> entry : terms.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new HashMap<>())
+                    .put(book.getId(), entry.getValue());
+            length += entry.getValue();
+        }
+        totalLength += length;
+        documentTerms.put(book.getId(), terms);
+        documentLengths.put(book.getId(), length);
+        // Giữ bản sao riêng: entity của nơi gọi có thể bị sửa sau khi lưu
+        documents.put(book.getId(), new Book(book));
+    }
+
+    private void addField(Map<String, Integer> terms, String value, int weight) {
+        for (String token : tokenize(value)) {
+            terms.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removeDocument(Long bookId) {
+        Map<String, Integer> terms = documentTerms.remove(bookId);
+        Integer length = documentLengths.remove(bookId);
+        documents.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        totalLength -= length != null ? length : 0;
+        for (Map.Entry<String, Integer> entry : terms.entrySet()) {
+            Map<Long, Integer> docs = postings.get(entry.getKey());
+            if (docs != null) {
+                docs.remove(bookId);
+                if (docs.isEmpty()) {
+                    postings.remove(entry.getKey());
+                }
+            }
+        }
+    }
+}
@@ -1,15 +1,31 @@
 package com.phanthanhthien.cmp3025.bookstore.services;
 
+import com.phanthanhthien.cmp3025.bookstore.constants.AppConstants;
 import com.phanthanhthien.cmp3025.bookstore.dto.BookDTO;
+import com.phanthanhthien.cmp3025.bookstore.dto.CursorPage;
 import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.entities.Category;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.BookSearchEvent;
 import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -27,6 +43,17 @@ public class BookService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
+    private static final List<String> SORT_FIELDS = List.of("id", "price", "createdAt");
+
+    // Giá trị sort null / thiếu field trong cursor
+    private static final String NULL_CURSOR_VALUE = "";
+
     /**
      * Lấy tất cả sách
      */
@@ -34,6 +61,146 @@ public class BookService {
         return bookRepository.findAll();
     }
 
+    /**
+     * Lấy một trang sách theo keyset pagination
+     *
+     * Trang tiếp theo được xác định bởi (giá trị sort, _id) của phần tử cuối
+     * trang trước, nên chi phí mỗi trang không phụ thuộc vào vị trí trang.
+     *
+     * @param sort   Khóa sắp xếp: id, price, createdAt (tiền tố "-" để giảm dần)
+     * @param cursor Token nhận từ nextCursor của trang trước (null = trang đầu)
+     * @param size   Số phần tử mỗi trang (giới hạn bởi MAX_PAGE_SIZE)
+     */
+    public CursorPage<Book> findPage(String sort, String cursor, int size) {
+        String sortKey = (sort == null || sort.isBlank()) ? AppConstants.DEFAULT_BOOK_SORT : sort.trim();
+        boolean descending = sortKey.startsWith("-");
+        String field = descending ? sortKey.substring(1) : sortKey;
+        if (!SORT_FIELDS.contains(field)) {
+            throw new IllegalArgumentException("Khóa sắp xếp không hợp lệ: " + sort);
+        }
+
+        int pageSize = Math.max(1, Math.min(size, AppConstants.MAX_PAGE_SIZE));
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+
+        Query query = new Query();
+        if (cursor != null && !cursor.isBlank()) {
+            query.addCriteria(afterCursor(sortKey, field, descending, cursor));
+        }
+        if ("id".equals(field)) {
+            query.with(Sort.by(direction, "id"));
+        } else {
+            query.with(Sort.by(direction, field).and(Sort.by(direction, "id")));
+        }
+        // Lấy dư 1 phần tử để biết còn trang sau hay không
+        query.limit(pageSize + 1);
+
+        List<Book> books = mongoTemplate.find(query, Book.class);
+        String nextCursor = null;
+        if (books.size() > pageSize) {
+            books = books.subList(0, pageSize);
+            nextCursor = encodeCursor(sortKey, field, books.get(pageSize - 1));
+        }
+
+        return new CursorPage<>(books, nextCursor, pageSize, sortKey);
+    }
+
+    /**
+     * Điều kiện "đứng sau con trỏ": (field, _id) lớn hơn (hoặc nhỏ hơn nếu giảm dần)
+     *
+     * MongoDB xếp null / thiếu field trước mọi giá trị, nên khi tăng dần các
+     * sách null nằm ở đầu, khi giảm dần nằm ở cuối; $gt / $lt không khớp null
+     * nên nhóm null được xử lý riêng và đi tiếp theo _id.
+     */
+    private Criteria afterCursor(String sortKey, String field, boolean descending, String cursor) {
+        String[] parts = decodeCursor(cursor);
+        if (!sortKey.equals(parts[0])) {
+            throw new IllegalArgumentException("Cursor không khớp với khóa sắp xếp: " + sortKey);
+        }
+
+        Long lastId;
+        try {
+            lastId = Long.valueOf(parts[2]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+
+        if ("id".equals(field)) {
+            return descending ? Criteria.where("id").lt(lastId) : Criteria.where("id").gt(lastId);
+        }
+
+        Object lastValue = parseCursorValue(field, parts[1]);
+        if (lastValue == null) {
+            Criteria sameNull = new Criteria().andOperator(
+                    Criteria.where(field).is(null),
+                    descending ? Criteria.where("id").lt(lastId) : Criteria.where("id").gt(lastId));
+            // Tăng dần: sau nhóm null là toàn bộ giá trị khác null; giảm dần: nhóm null là cuối cùng
+            return descending ? sameNull : new Criteria().orOperator(sameNull, Criteria.where(field).ne(null));
+        }
+
+        Criteria beyondValue = descending ? Criteria.where(field).lt(lastValue) : Criteria.where(field).gt(lastValue);
+        Criteria sameValue = new Criteria().andOperator(
+                Criteria.where(field).is(lastValue),
+                descending ? Criteria.where("id").lt(lastId) : Criteria.where("id").gt(lastId));
+        if (descending) {
+            return new Criteria().orOperator(beyondValue, sameValue, Criteria.where(field).is(null));
+        }
+        return new Criteria().orOperator(beyondValue, sameValue);
+    }
+
+    private String encodeCursor(String sortKey, String field, Book last) {
+        String value = switch (field) {
+            case "price" -> last.getPrice() != null ? last.getPrice().toPlainString() : NULL_CURSOR_VALUE;
+            case "createdAt" -> last.getCreatedAt() != null ? last.getCreatedAt().toString() : NULL_CURSOR_VALUE;
+            default -> NULL_CURSOR_VALUE;
+        };
+        String raw = sortKey + "|" + value + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Cursor không hợp lệ");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+    }
+
+    private Object parseCursorValue(String field, String value) {
+        if (NULL_CURSOR_VALUE.equals(value)) {
+            return null;
+        }
+        try {
+            return switch (field) {
+                case "price" -> new BigDecimal(value);
+                case "createdAt" -> LocalDateTime.parse(value);
+                default -> value;
+            };
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor không hợp lệ");
+        }
+    }
+
+    /**
+     * Tổng số lượng tồn kho (tính phía MongoDB, không tải sách về)
+     */
+    public long sumStock() {
+        Document result = mongoTemplate.getCollection("books")
+                .aggregate(List.of(new Document("$group",
+                        new Document("_id", null)
+                                .append("total", new Document("$sum", "$stock")))))
+                .first();
+        if (result == null || result.get("total") == null) {
+            return 0;
+        }
+        return ((Number) result.get("total")).longValue();
+    }
+
     /**
      * Tìm sách theo ID
      */
@@ -42,11 +209,19 @@ public class BookService {
     }
 
     /**
-     * Tìm kiếm sách
+     * Tìm kiếm sách theo tên, tác giả, mô tả (chỉ mục trong bộ nhớ, xếp hạng BM25)
      */
     public List<Book> search(String keyword) {
-        return bookRepository.findByTitleContainingIgnoreCaseOrAuthorContainingIgnoreCase(
-                keyword, keyword);
+        BookSearchEvent event = new BookSearchEvent();
+        event.begin();
+        List<Book> results = bookSearchIndex.search(keyword);
+        if (event.shouldCommit()) {
+            event.keyword = keyword;
+            event.resultCount = results.size();
+            event.indexSize = bookSearchIndex.size();
+            event.commit();
+        }
+        return results;
     }
 
     /**
@@ -74,17 +249,7 @@ public class BookService {
      * Convert Book entity sang BookDTO
      */
     public BookDTO convertToDTO(Book book) {
-        BookDTO dto = new BookDTO();
-        dto.setId(book.getId());
-        dto.setTitle(book.getTitle());
-        dto.setAuthor(book.getAuthor());
-        dto.setDescription(book.getDescription());
-        dto.setPrice(book.getPrice());
-        dto.setStock(book.getStock());
-        dto.setCategoryId(book.getCategoryId());
-        dto.setImageUrl(book.getImageUrl());
-        dto.setCreatedAt(book.getCreatedAt());
-        dto.setUpdatedAt(book.getUpdatedAt());
+        BookDTO dto = toDTO(book);
 
         // Lấy tên danh mục
         if (book.getCategoryId() != null) {
@@ -97,11 +262,47 @@ public class BookService {
 
     /**
      * Convert list Book entities sang list BookDTOs
+     *
+     * Tên danh mục được lấy bằng một truy vấn $in duy nhất cho tất cả
+     * categoryId khác nhau, thay vì một lần findById cho mỗi sách.
      */
     public List<BookDTO> convertToDTOList(List<Book> books) {
+        Set<Long> categoryIds = books.stream()
+                .map(Book::getCategoryId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, String> categoryNames = new HashMap<>();
+        if (!categoryIds.isEmpty()) {
+            for (Category category : categoryRepository.findAllById(categoryIds)) {
+                categoryNames.put(category.getId(), category.getName());
+            }
+        }
+
         return books.stream()
-                .map(this::convertToDTO)
+                .map(book -> {
+                    BookDTO dto = toDTO(book);
+                    if (book.getCategoryId() != null) {
+                        dto.setCategoryName(categoryNames.get(book.getCategoryId()));
+                    }
+                    return dto;
+                })
                 .collect(Collectors.toList());
     }
 
+    private BookDTO toDTO(Book book) {
+        BookDTO dto = new BookDTO();
+        dto.setId(book.getId());
+        dto.setTitle(book.getTitle());
+        dto.setAuthor(book.getAuthor());
+        dto.setDescription(book.getDescription());
+        dto.setPrice(book.getPrice());
+        dto.setStock(book.getStock());
+        dto.setCategoryId(book.getCategoryId());
+        dto.setImageUrl(book.getImageUrl());
+        dto.setCreatedAt(book.getCreatedAt());
+        dto.setUpdatedAt(book.getUpdatedAt());
+        return dto;
+    }
+
 }
@@ -3,15 +3,35 @@ package com.phanthanhthien.cmp3025.bookstore.services;
 import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.entities.Cart;
 import com.phanthanhthien.cmp3025.bookstore.entities.CartItem;
-import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CartRepository;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 
 /**
  * Cart Service - Xử lý logic giỏ hàng
+ *
+ * Mọi thao tác sửa giỏ là một lệnh update nguyên tử trên MongoDB
+ * ($inc / $push / $pull / $set, upsert khi giỏ chưa tồn tại), không đọc -
+ * sửa - ghi cả document, nên hai tab thêm sách cùng lúc không ghi đè nhau.
+ * Tồn kho được kiểm tra bằng một truy vấn chỉ lấy vài field của sách.
+ *
  * Author: Phan Thanh Thien - MSSV: 2280603036
  */
 @Service
@@ -21,35 +41,32 @@ public class CartService {
     private CartRepository cartRepository;
 
     @Autowired
-    private BookRepository bookRepository;
+    private MongoTemplate mongoTemplate;
 
     /**
      * Lấy giỏ hàng của user
      */
     public Cart getCartByUserId(String userId) {
         return cartRepository.findByUserId(userId)
-                .orElseGet(() -> {
-                    Cart newCart = new Cart(userId);
-                    return cartRepository.save(newCart);
-                });
+                .orElseGet(() -> upsertCart(userId, new Update()));
     }
 
     /**
      * Thêm sách vào giỏ hàng
+     *
+     * Tối đa hai round trip: đọc projection của sách, rồi một lệnh update
+     * pipeline cộng dồn số lượng nếu sách đã có trong giỏ, ngược lại thêm item mới.
      */
     public Cart addToCart(String userId, Long bookId, int quantity) {
-        Cart cart = getCartByUserId(userId);
-
-        Optional<Book> bookOpt = bookRepository.findById(bookId);
-        if (bookOpt.isEmpty()) {
+        Book book = findBookForCart(bookId, "title", "author", "imageUrl", "price", "stock");
+        if (book == null) {
             throw new RuntimeException("Không tìm thấy sách với ID: " + bookId);
         }
 
-        Book book = bookOpt.get();
-
         // Kiểm tra số lượng tồn kho
-        if (book.getStock() < quantity) {
-            throw new RuntimeException("Số lượng tồn kho không đủ. Còn lại: " + book.getStock());
+        int stock = book.getStock() != null ? book.getStock() : 0;
+        if (stock < quantity) {
+            throw new RuntimeException("Số lượng tồn kho không đủ. Còn lại: " + stock);
         }
 
         CartItem item = new CartItem(
@@ -60,44 +77,88 @@ public class CartService {
                 book.getPrice(),
                 quantity);
 
-        cart.addItem(item);
-        return cartRepository.save(cart);
+        Document itemDocument = (Document) mongoTemplate.getConverter().convertToMongoType(item);
+        Date now = new Date();
+
+        // items đã có bookId -> $map tăng quantity, chưa có -> nối thêm item
+        Document containsBook = new Document("$in", List.of(bookId,
+                new Document("$ifNull", List.of("$items.bookId", new ArrayList<>()))));
+        Document increased = new Document("$map", new Document("input", "$items")
+                .append("as", "it")
+                .append("in", new Document("$cond", List.of(
+                        new Document("$eq", List.of("$$it.bookId", bookId)),
+                        new Document("$mergeObjects", List.of("$$it", new Document("quantity",
+                                new Document("$add", List.of("$$it.quantity", quantity))))),
+                        "$$it"))));
+        // $literal để các giá trị bắt đầu bằng '$' trong item không bị hiểu là field path
+        Document appended = new Document("$concatArrays", List.of(
+                new Document("$ifNull", List.of("$items", new ArrayList<>())),
+                List.of(new Document("$literal", itemDocument))));
+
+        Document set = new Document("items", new Document("$cond", List.of(containsBook, increased, appended)))
+                .append("createdAt", new Document("$ifNull", List.of("$createdAt", now)))
+                .append("updatedAt", now);
+
+        FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
+                .upsert(true)
+                .returnDocument(ReturnDocument.AFTER);
+
+        Document result;
+        try {
+            result = cartCollectionUpdate(userId, set, options);
+        } catch (MongoCommandException e) {
+            if (ErrorCategory.fromErrorCode(e.getErrorCode()) != ErrorCategory.DUPLICATE_KEY) {
+                throw e;
+            }
+            // Request khác vừa tạo giỏ cho user này -> lệnh update lần hai sẽ khớp giỏ đó
+            result = cartCollectionUpdate(userId, set, options);
+        }
+        return mongoTemplate.getConverter().read(Cart.class, result);
     }
 
     /**
      * Cập nhật số lượng
      */
     public Cart updateQuantity(String userId, Long bookId, int quantity) {
-        Cart cart = getCartByUserId(userId);
+        if (quantity <= 0) {
+            return removeFromCart(userId, bookId);
+        }
 
-        if (quantity > 0) {
-            // Kiểm tra số lượng tồn kho
-            Optional<Book> bookOpt = bookRepository.findById(bookId);
-            if (bookOpt.isPresent() && bookOpt.get().getStock() < quantity) {
-                throw new RuntimeException("Số lượng tồn kho không đủ. Còn lại: " + bookOpt.get().getStock());
-            }
+        // Kiểm tra số lượng tồn kho
+        Book book = findBookForCart(bookId, "stock");
+        if (book != null && book.getStock() != null && book.getStock() < quantity) {
+            throw new RuntimeException("Số lượng tồn kho không đủ. Còn lại: " + book.getStock());
         }
 
-        cart.updateQuantity(bookId, quantity);
-        return cartRepository.save(cart);
+        Query query = new Query(Criteria.where("userId").is(userId).and("items.bookId").is(bookId));
+        Update update = new Update()
+                .set("items.$.quantity", quantity)
+                .set("updatedAt", LocalDateTime.now());
+
+        Cart cart = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Cart.class);
+        // Sách không có trong giỏ -> giữ nguyên giỏ như trước
+        return cart != null ? cart : getCartByUserId(userId);
     }
 
     /**
      * Xóa sách khỏi giỏ hàng
      */
     public Cart removeFromCart(String userId, Long bookId) {
-        Cart cart = getCartByUserId(userId);
-        cart.removeItem(bookId);
-        return cartRepository.save(cart);
+        Update update = new Update()
+                .pull("items", Query.query(Criteria.where("bookId").is(bookId)))
+                .set("updatedAt", LocalDateTime.now());
+        return upsertCart(userId, update);
     }
 
     /**
      * Xóa toàn bộ giỏ hàng
      */
     public void clearCart(String userId) {
-        Cart cart = getCartByUserId(userId);
-        cart.clear();
-        cartRepository.save(cart);
+        Update update = new Update()
+                .set("items", new ArrayList<CartItem>())
+                .set("updatedAt", LocalDateTime.now());
+        upsertCart(userId, update);
     }
 
     /**
@@ -111,4 +172,40 @@ public class CartService {
             return 0;
         }
     }
+
+    /**
+     * Đọc sách chỉ với các field cần cho giỏ hàng
+     */
+    private Book findBookForCart(Long bookId, String... fields) {
+        Query query = new Query(Criteria.where("id").is(bookId));
+        query.fields().include(fields);
+        return mongoTemplate.findOne(query, Book.class);
+    }
+
+    /**
+     * Áp dụng update lên giỏ của user, tạo giỏ rỗng nếu chưa có (upsert)
+     */
+    private Cart upsertCart(String userId, Update update) {
+        Query query = new Query(Criteria.where("userId").is(userId));
+        update.setOnInsert("createdAt", LocalDateTime.now());
+        if (!update.modifies("items")) {
+            update.setOnInsert("items", new ArrayList<CartItem>());
+        }
+        if (!update.modifies("updatedAt")) {
+            update.setOnInsert("updatedAt", LocalDateTime.now());
+        }
+
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        try {
+            return mongoTemplate.findAndModify(query, update, options, Cart.class);
+        } catch (DuplicateKeyException e) {
+            // Upsert đồng thời: giỏ vừa được tạo bởi request khác, lần này sẽ khớp
+            return mongoTemplate.findAndModify(query, update, options, Cart.class);
+        }
+    }
+
+    private Document cartCollectionUpdate(String userId, Document set, FindOneAndUpdateOptions options) {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Cart.class))
+                .findOneAndUpdate(Filters.eq("userId", userId), List.of(new Document("$set", set)), options);
+    }
 }
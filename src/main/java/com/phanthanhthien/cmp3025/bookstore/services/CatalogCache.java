@@ -0,0 +1,217 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.Category;
+import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
+import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
+import com.phanthanhthien.cmp3025.bookstore.utils.NearCache;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * CatalogCache - Near-cache trong tiến trình cho books và categories
+ *
+ * - Đọc xuyên: miss thì đọc MongoDB rồi lưu, mỗi entry có TTL, giới hạn kích thước
+ * - Ghi trên node này: xóa entry ngay qua Mongo lifecycle events
+ * - Ghi trên node khác (hoặc update trực tiếp không qua save): nhận qua
+ *   change stream và xóa entry trong vài mili giây
+ * - Change stream cần replica set; MongoDB standalone thì chỉ còn TTL
+ * - Mỗi lần xóa entry cũng xóa PageCache (HTML đã render từ dữ liệu này)
+ *
+ * Entity trong cache không rời khỏi lớp này: mỗi lần đọc trả về bản sao,
+ * nơi gọi sửa đối tượng cũng không ảnh hưởng request khác. Luồng sửa / xóa
+ * vẫn đọc trực tiếp từ repository.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class CatalogCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCache.class);
+
+    private static final String BOOKS = "books";
+    private static final String CATEGORIES = "categories";
+
+    private static final String ALL_CATEGORIES = "all";
+    private static final String HOME_BOOKS = "home";
+    private static final int HOME_BOOK_LIMIT = 12;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private PageCache pageCache;
+
+    @Value("${catalog.cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${catalog.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${catalog.cache.change-stream-enabled:true}")
+    private boolean changeStreamEnabled;
+
+    private NearCache<Long, Book> books;
+    private NearCache<Long, Category> categories;
+    private NearCache<String, List<Book>> bookLists;
+    private NearCache<String, List<Category>> categoryLists;
+
+    private ChangeStreamWatcher watcher;
+
+    @PostConstruct
+    public void init() {
+        long ttlMillis = ttlSeconds * 1000;
+        books = new NearCache<>(maxSize, ttlMillis);
+        categories = new NearCache<>(maxSize, ttlMillis);
+        bookLists = new NearCache<>(16, ttlMillis);
+        categoryLists = new NearCache<>(16, ttlMillis);
+    }
+
+    // ===== Đọc =====
+
+    public Optional<Book> findBookById(Long id) {
+        return Optional.ofNullable(books.get(id, key -> bookRepository.findById(key).orElse(null)))
+                .map(Book::new);
+    }
+
+    public Optional<Category> findCategoryById(Long id) {
+        return Optional.ofNullable(categories.get(id, key -> categoryRepository.findById(key).orElse(null)))
+                .map(Category::new);
+    }
+
+    public List<Category> findAllCategories() {
+        return categoryLists.get(ALL_CATEGORIES, key -> List.copyOf(categoryRepository.findAll()))
+                .stream().map(Category::new).toList();
+    }
+
+    /**
+     * Sách hiển thị trên trang chủ (12 cuốn đầu tiên)
+     */
+    public List<Book> findHomeBooks() {
+        return bookLists.get(HOME_BOOKS,
+                key -> List.copyOf(mongoTemplate.find(new Query().limit(HOME_BOOK_LIMIT), Book.class)))
+                .stream().map(Book::new).toList();
+    }
+
+    // ===== Vô hiệu hóa =====
+
+    public void evictBook(Long id) {
+        books.invalidate(id);
+        bookLists.invalidateAll();
+        pageCache.clear();
+    }
+
+    public void evictCategory(Long id) {
+        categories.invalidate(id);
+        categoryLists.invalidateAll();
+        pageCache.clear();
+    }
+
+    public void clear() {
+        books.invalidateAll();
+        categories.invalidateAll();
+        bookLists.invalidateAll();
+        categoryLists.invalidateAll();
+        pageCache.clear();
+    }
+
+    /**
+     * Thống kê hit / miss / eviction của từng vùng cache
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("books", books.getStats());
+        stats.put("categories", categories.getStats());
+        stats.put("bookLists", bookLists.getStats());
+        stats.put("categoryLists", categoryLists.getStats());
+        stats.put("changeStreamActive", watcher != null && watcher.isActive());
+        return stats;
+    }
+
+    // ===== Ghi trên node này =====
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        evict(event.getCollectionName(), event.getDocument() != null ? event.getDocument().get("_id") : null);
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        evict(event.getCollectionName(), event.getSource() != null ? event.getSource().get("_id") : null);
+    }
+
+    private void evict(String collection, Object id) {
+        if (!BOOKS.equals(collection) && !CATEGORIES.equals(collection)) {
+            return;
+        }
+        if (!(id instanceof Number number)) {
+            // Xóa theo điều kiện không có _id cụ thể
+            clear();
+        } else if (BOOKS.equals(collection)) {
+            evictBook(number.longValue());
+        } else {
+            evictCategory(number.longValue());
+        }
+    }
+
+    // ===== Change stream =====
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startChangeStream() {
+        if (!changeStreamEnabled) {
+            return;
+        }
+        watcher = new ChangeStreamWatcher("catalog", mongoTemplate.getDb(), List.of(BOOKS, CATEGORIES),
+                this::onChange, this::clear);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    private void onChange(ChangeStreamDocument<Document> change) {
+        String collection = change.getNamespace() != null ? change.getNamespace().getCollectionName() : null;
+        BsonDocument key = change.getDocumentKey();
+        BsonValue id = key != null ? key.get("_id") : null;
+
+        if (collection == null || id == null || !id.isNumber()) {
+            // drop, rename, invalidate...
+            clear();
+        } else if (BOOKS.equals(collection)) {
+            evictBook(id.asNumber().longValue());
+        } else {
+            evictCategory(id.asNumber().longValue());
+        }
+    }
+}
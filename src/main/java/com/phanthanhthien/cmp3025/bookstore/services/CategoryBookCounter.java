@@ -0,0 +1,157 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * CategoryBookCounter - Số sách của từng danh mục, lưu trong collection category_counts
+ *
+ * - Mỗi document {_id: categoryId, count}, dùng chung cho mọi node
+ * - Khởi tạo bằng một aggregation $group chỉ đếm trên books, ghi ra bằng $out
+ * - Cập nhật bằng $inc qua Mongo lifecycle events khi sách được thêm, xóa
+ *   hoặc đổi danh mục; danh mục cũ được đọc trong BeforeSave / BeforeDelete
+ *
+ * Ghi trực tiếp bằng bulkWrite / updateMulti không phát event, nơi gọi
+ * cần gọi {@link #rebuild()} sau khi ghi.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class CategoryBookCounter extends AbstractMongoEventListener<Book> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CategoryBookCounter.class);
+
+    public static final String COLLECTION = "category_counts";
+
+    @Autowired
+    @Lazy
+    private MongoTemplate mongoTemplate;
+
+    // bookId -> danh mục trước khi lưu / xóa (Before* và After* chạy trên cùng thread)
+    private final ThreadLocal<Map<Long, Long>> previousCategories = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * Khởi tạo category_counts lần đầu (các node sau dùng lại số đã lưu)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedIfEmpty() {
+        if (mongoTemplate.getCollection(COLLECTION).estimatedDocumentCount() == 0) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Tính lại toàn bộ bằng một aggregation $group theo categoryId, ghi đè category_counts
+     */
+    public void rebuild() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("categoryId").ne(null)),
+                Aggregation.group("categoryId").count().as("count"),
+                Aggregation.out(COLLECTION));
+        mongoTemplate.aggregate(aggregation, "books", Document.class);
+        logger.info("📊 Đã đếm lại số sách cho {} danh mục",
+                mongoTemplate.getCollection(COLLECTION).estimatedDocumentCount());
+    }
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Book> event) {
+        Book book = event.getSource();
+        if (book != null && book.getId() != null) {
+            previousCategories.get().put(book.getId(), findCategoryId(book.getId()));
+        }
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Book> event) {
+        Book book = event.getSource();
+        if (book == null || book.getId() == null) {
+            return;
+        }
+        Long previous = previousCategories.get().remove(book.getId());
+        if (previous != null && previous.equals(book.getCategoryId())) {
+            return;
+        }
+        increment(previous, -1);
+        increment(book.getCategoryId(), 1);
+    }
+
+    @Override
+    public void onBeforeDelete(BeforeDeleteEvent<Book> event) {
+        Object id = event.getSource() != null ? event.getSource().get("_id") : null;
+        if (id instanceof Number number) {
+            previousCategories.get().put(number.longValue(), findCategoryId(number.longValue()));
+        }
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Book> event) {
+        Object id = event.getSource() != null ? event.getSource().get("_id") : null;
+        if (!(id instanceof Number number)) {
+            // deleteAll hoặc xóa theo điều kiện phức tạp -> đếm lại
+            rebuild();
+            return;
+        }
+        increment(previousCategories.get().remove(number.longValue()), -1);
+    }
+
+    /**
+     * Số sách của một danh mục
+     */
+    public long getCount(Long categoryId) {
+        if (categoryId == null) {
+            return 0L;
+        }
+        Document counter = mongoTemplate.findById(categoryId, Document.class, COLLECTION);
+        return counter != null ? Math.max(0L, ((Number) counter.get("count")).longValue()) : 0L;
+    }
+
+    /**
+     * Số sách của tất cả danh mục (một truy vấn trên category_counts)
+     */
+    public Map<Long, Long> getCounts() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Document counter : mongoTemplate.find(
+                new Query(Criteria.where("count").gt(0)), Document.class, COLLECTION)) {
+            counts.put(((Number) counter.get("_id")).longValue(), ((Number) counter.get("count")).longValue());
+        }
+        return counts;
+    }
+
+    // Danh mục hiện tại của sách trong DB, null nếu sách chưa tồn tại
+    private Long findCategoryId(Long bookId) {
+        Query query = new Query(Criteria.where("_id").is(bookId));
+        query.fields().include("categoryId");
+        Document current = mongoTemplate.findOne(query, Document.class, "books");
+        Object categoryId = current != null ? current.get("categoryId") : null;
+        return categoryId instanceof Number number ? number.longValue() : null;
+    }
+
+    private void increment(Long categoryId, long delta) {
+        if (categoryId == null) {
+            return;
+        }
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(categoryId)),
+                new Update().inc("count", delta), COLLECTION);
+    }
+}
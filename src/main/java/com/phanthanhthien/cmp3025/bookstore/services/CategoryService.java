@@ -2,12 +2,12 @@ package com.phanthanhthien.cmp3025.bookstore.services;
 
 import com.phanthanhthien.cmp3025.bookstore.dto.CategoryDTO;
 import com.phanthanhthien.cmp3025.bookstore.entities.Category;
-import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,7 +24,7 @@ public class CategoryService {
     private CategoryRepository categoryRepository;
 
     @Autowired
-    private BookRepository bookRepository;
+    private CategoryBookCounter categoryBookCounter;
 
     /**
      * Lấy tất cả danh mục
@@ -79,27 +79,29 @@ public class CategoryService {
      * Convert Category entity sang CategoryDTO
      */
     public CategoryDTO convertToDTO(Category category) {
-        CategoryDTO dto = new CategoryDTO();
-        dto.setId(category.getId());
-        dto.setName(category.getName());
-        dto.setDescription(category.getDescription());
-        dto.setCreatedAt(category.getCreatedAt());
-        dto.setUpdatedAt(category.getUpdatedAt());
-        
-        // Đếm số sách trong danh mục
-        long bookCount = bookRepository.findByCategoryId(category.getId()).size();
-        dto.setBookCount(bookCount);
-        
-        return dto;
+        return toDTO(category, categoryBookCounter.getCount(category.getId()));
     }
 
     /**
      * Convert list Category entities sang list CategoryDTOs
      */
     public List<CategoryDTO> convertToDTOList(List<Category> categories) {
+        // Số sách được tính sẵn, không truy vấn books cho từng danh mục
+        Map<Long, Long> bookCounts = categoryBookCounter.getCounts();
         return categories.stream()
-                .map(this::convertToDTO)
+                .map(category -> toDTO(category, bookCounts.getOrDefault(category.getId(), 0L)))
                 .collect(Collectors.toList());
     }
 
+    private CategoryDTO toDTO(Category category, long bookCount) {
+        CategoryDTO dto = new CategoryDTO();
+        dto.setId(category.getId());
+        dto.setName(category.getName());
+        dto.setDescription(category.getDescription());
+        dto.setCreatedAt(category.getCreatedAt());
+        dto.setUpdatedAt(category.getUpdatedAt());
+        dto.setBookCount(bookCount);
+        return dto;
+    }
+
 }
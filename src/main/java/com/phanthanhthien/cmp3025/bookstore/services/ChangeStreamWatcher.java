@@ -0,0 +1,147 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * ChangeStreamWatcher - Theo dõi change stream của một số collection trên thread nền
+ *
+ * - Mỗi lần (re)connect gọi onRestart trước, vì có thể đã bỏ lỡ thay đổi;
+ *   onRestart chạy sau khi cursor đã mở nên thay đổi xảy ra trong lúc nạp
+ *   lại vẫn được nhận sau đó
+ * - Lỗi tạm thời: thử lại sau RETRY_DELAY_MS
+ * - MongoDB standalone (không hỗ trợ change stream): dừng hẳn và log cảnh báo
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class ChangeStreamWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChangeStreamWatcher.class);
+
+    private static final long RETRY_DELAY_MS = 5000;
+
+    // "$changeStream stage is only supported on replica sets"
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+
+    private final String name;
+    private final MongoDatabase database;
+    private final List<String> collections;
+    private final Consumer<ChangeStreamDocument<Document>> onChange;
+    private final Runnable onRestart;
+
+    private volatile boolean running = false;
+    private volatile MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor;
+
+    // Mở xong lần đầu (onRestart đã chạy) hoặc watcher đã dừng hẳn
+    private final CountDownLatch firstConnect = new CountDownLatch(1);
+    private volatile boolean connectedOnce = false;
+
+    public ChangeStreamWatcher(String name, MongoDatabase database, List<String> collections,
+            Consumer<ChangeStreamDocument<Document>> onChange, Runnable onRestart) {
+        this.name = name;
+        this.database = database;
+        this.collections = collections;
+        this.onChange = onChange;
+        this.onRestart = onRestart;
+    }
+
+    public void start() {
+        running = true;
+        Thread watcher = new Thread(this::watch, name + "-change-stream");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void stop() {
+        running = false;
+        MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = cursor;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Chờ lần mở change stream đầu tiên, gồm cả onRestart
+     *
+     * @return false nếu hết thời gian chờ hoặc change stream không dùng được
+     */
+    public boolean awaitFirstConnect(long timeoutMs) {
+        try {
+            firstConnect.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return connectedOnce;
+    }
+
+    /**
+     * Change stream đang mở
+     */
+    public boolean isActive() {
+        return cursor != null;
+    }
+
+    private void watch() {
+        try {
+            watchUntilStopped();
+        } finally {
+            firstConnect.countDown();
+        }
+    }
+
+    private void watchUntilStopped() {
+        while (running) {
+            try {
+                var stream = database.watch(List.of(Aggregates.match(Filters.in("ns.coll", collections))));
+
+                try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> current = stream.cursor()) {
+                    cursor = current;
+                    // Có thể đã bỏ lỡ thay đổi trong lúc chưa theo dõi (khởi động / mất kết nối)
+                    onRestart.run();
+                    connectedOnce = true;
+                    firstConnect.countDown();
+                    logger.info("📡 [{}] Đang theo dõi change stream của {}", name, collections);
+                    while (running && current.hasNext()) {
+                        onChange.accept(current.next());
+                    }
+                } finally {
+                    cursor = null;
+                }
+            } catch (MongoCommandException e) {
+                if (e.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                    logger.warn("⚠️ [{}] MongoDB không phải replica set, không dùng được change stream", name);
+                    return;
+                }
+                waitBeforeRetry(e);
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                waitBeforeRetry(e);
+            }
+        }
+    }
+
+    private void waitBeforeRetry(RuntimeException e) {
+        logger.warn("⚠️ [{}] Change stream lỗi, thử lại sau {} ms: {}", name, RETRY_DELAY_MS, e.getMessage());
+        try {
+            Thread.sleep(RETRY_DELAY_MS);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -12,13 +12,26 @@ import com.mongodb.client.model.Updates;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
 /**
  * CounterService - Quản lý Auto Increment cho MongoDB
  *
  * Tạo ID tự động tăng cho các collection
  *
+ * Hỗ trợ chế độ cấp phát theo khối (Hi/Lo): mỗi lần $inc giữ trước một dải
+ * ID (ví dụ 100 ID), sau đó cấp phát trong bộ nhớ bằng AtomicLong. Các node
+ * khác nhau luôn nhận các dải rời nhau nên vẫn an toàn khi chạy nhiều instance.
+ * Kích thước khối cấu hình qua counter.block-sizes.{collection}
+ * (mặc định counter.default-block-size = 1, tức một round trip cho mỗi ID).
+ *
  * @author Phan Thanh Thien
  * @version 1.0.0
  */
@@ -34,9 +47,36 @@ public class CounterService {
     @Autowired
     private CategoryRepository categoryRepository;
 
+    @Autowired
+    private Environment environment;
+
+    @Value("${counter.default-block-size:1}")
+    private int defaultBlockSize;
+
     private static final String DB_NAME = "bookstore_db_new";
     private static final String COUNTER_COLLECTION = "counters";
 
+    private volatile MongoCollection<Document> counterCollection;
+
+    // Khối ID đang cấp phát của từng collection
+    private final Map<String, IdBlock> blocks = new ConcurrentHashMap<>();
+
+    // Lock dùng khi cần giữ khối mới (chỉ một thread đi lấy khối cho mỗi collection)
+    private final Map<String, ReentrantLock> refillLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Dải ID [next, max] đã được giữ trước trong DB
+     */
+    private static final class IdBlock {
+        private final AtomicLong next;
+        private final long max;
+
+        private IdBlock(long first, long max) {
+            this.next = new AtomicLong(first);
+            this.max = max;
+        }
+    }
+
     /**
      * Lấy sequence ID tiếp theo cho một collection
      *
@@ -44,20 +84,82 @@ public class CounterService {
      * @return ID tiếp theo (Long)
      */
     public Long getNextSequence(String collectionName) {
-        MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-        MongoCollection<Document> counterCollection = database.getCollection(COUNTER_COLLECTION);
+        int blockSize = getBlockSize(collectionName);
+        if (blockSize <= 1) {
+            return reserveRange(collectionName, 1);
+        }
+
+        // Đường nhanh: lấy ID từ khối hiện tại, không khóa
+        Long id = takeFromBlock(collectionName);
+        if (id != null) {
+            return id;
+        }
+
+        ReentrantLock lock = refillLocks.computeIfAbsent(collectionName, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            // Thread khác có thể đã lấy khối mới trong lúc chờ
+            id = takeFromBlock(collectionName);
+            if (id != null) {
+                return id;
+            }
+
+            long first = reserveRange(collectionName, blockSize);
+            IdBlock block = new IdBlock(first + 1, first + blockSize - 1);
+            blocks.put(collectionName, block);
+            return first;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Giữ trước một dải ID liên tiếp bằng một lệnh $inc duy nhất
+     *
+     * @param collectionName Tên collection
+     * @param count Số ID cần giữ
+     * @return ID đầu tiên của dải (dải là [first, first + count - 1])
+     */
+    public long reserveRange(String collectionName, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Số ID cần cấp phát phải lớn hơn 0");
+        }
 
         // Tìm và cập nhật counter trong một operation (atomic)
         Bson filter = new Document("_id", collectionName);
-        Bson update = Updates.inc("seq", 1L);
+        Bson update = Updates.inc("seq", (long) count);
         FindOneAndUpdateOptions options = new FindOneAndUpdateOptions()
             .returnDocument(ReturnDocument.AFTER)
             .upsert(true);
 
-        Document result = counterCollection.findOneAndUpdate(filter, update, options);
+        Document result = getCounterCollection().findOneAndUpdate(filter, update, options);
+
+        // seq mới là ID cuối cùng của dải
+        return result.getLong("seq") - count + 1;
+    }
+
+    private Long takeFromBlock(String collectionName) {
+        IdBlock block = blocks.get(collectionName);
+        if (block == null) {
+            return null;
+        }
+        long id = block.next.getAndIncrement();
+        return id <= block.max ? id : null;
+    }
+
+    private int getBlockSize(String collectionName) {
+        return environment.getProperty("counter.block-sizes." + collectionName,
+                Integer.class, defaultBlockSize);
+    }
 
-        // Trả về giá trị seq mới
-        return result.getLong("seq");
+    private MongoCollection<Document> getCounterCollection() {
+        MongoCollection<Document> collection = counterCollection;
+        if (collection == null) {
+            MongoDatabase database = mongoClient.getDatabase(DB_NAME);
+            collection = database.getCollection(COUNTER_COLLECTION);
+            counterCollection = collection;
+        }
+        return collection;
     }
 
     /**
@@ -65,10 +167,9 @@ public class CounterService {
      * Dùng khi cần reset sequence
      */
     public void resetCounter(String collectionName, Long value) {
-        MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-        MongoCollection<Document> counterCollection = database.getCollection(COUNTER_COLLECTION);
+        blocks.remove(collectionName);
 
-        counterCollection.replaceOne(
+        getCounterCollection().replaceOne(
             new Document("_id", collectionName),
             new Document("_id", collectionName)
                 .append("seq", value)
@@ -79,19 +180,17 @@ public class CounterService {
      * Xóa một counter
      */
     public void deleteCounter(String collectionName) {
-        MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-        MongoCollection<Document> counterCollection = database.getCollection(COUNTER_COLLECTION);
+        blocks.remove(collectionName);
 
-        counterCollection.deleteOne(new Document("_id", collectionName));
+        getCounterCollection().deleteOne(new Document("_id", collectionName));
     }
 
     /**
      * Reset tất cả counters về 0
      */
     public void resetAllCounters() {
-        MongoDatabase database = mongoClient.getDatabase(DB_NAME);
-        MongoCollection<Document> counterCollection = database.getCollection(COUNTER_COLLECTION);
+        blocks.clear();
 
-        counterCollection.deleteMany(new Document());
+        getCounterCollection().deleteMany(new Document());
     }
 }
@@ -3,22 +3,32 @@ package com.phanthanhthien.cmp3025.bookstore.services;
 import com.phanthanhthien.cmp3025.bookstore.entities.Book;
 import com.phanthanhthien.cmp3025.bookstore.entities.Category;
 import com.phanthanhthien.cmp3025.bookstore.entities.Order;
-import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.ExcelExportEvent;
 import com.phanthanhthien.cmp3025.bookstore.repository.CategoryRepository;
-import com.phanthanhthien.cmp3025.bookstore.repository.OrderRepository;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * Service xuất dữ liệu ra file Excel
+ *
+ * Xuất theo kiểu streaming: đọc MongoDB bằng cursor theo lô, ghi qua
+ * SXSSFWorkbook (chỉ giữ ROW_WINDOW dòng trong heap, phần còn lại flush ra
+ * file tạm) và ghi thẳng vào OutputStream của response. Độ rộng cột được
+ * ước lượng từ header và WIDTH_SAMPLE_ROWS dòng đầu thay vì autoSizeColumn.
  * 
  * @author Phan Thanh Thien
  * @version 1.0.0
@@ -26,24 +36,38 @@ import java.util.Optional;
 @Service
 public class ExcelExportService {
 
-    @Autowired
-    private BookRepository bookRepository;
-
     @Autowired
     private CategoryRepository categoryRepository;
 
     @Autowired
-    private OrderRepository orderRepository;
+    private MongoTemplate mongoTemplate;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
 
+    // Số dòng giữ trong bộ nhớ của SXSSF
+    private static final int ROW_WINDOW = 200;
+
+    // Kích thước lô đọc từ MongoDB cursor
+    private static final int CURSOR_BATCH_SIZE = 1000;
+
+    // Số dòng đầu dùng để ước lượng độ rộng cột
+    private static final int WIDTH_SAMPLE_ROWS = 200;
+
+    private static final int MAX_COLUMN_CHARS = 60;
+
     /**
      * Xuất toàn bộ sách ra file Excel
      */
-    public byte[] exportBooksToExcel() throws IOException {
-        List<Book> books = bookRepository.findAll();
+    public void exportBooksToExcel(OutputStream out) throws IOException {
+        // Danh mục ít -> nạp một lần thay vì findById cho mỗi sách
+        Map<Long, String> categoryNames = new HashMap<>();
+        for (Category category : categoryRepository.findAll()) {
+            categoryNames.put(category.getId(), category.getName());
+        }
 
-        try (Workbook workbook = new XSSFWorkbook()) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try (workbook; Stream<Book> books = streamAll(Book.class, "id")) {
             Sheet sheet = workbook.createSheet("Danh sách sách");
 
             // Style cho header
@@ -75,16 +99,21 @@ public class ExcelExportService {
             // Tạo header row
             Row headerRow = sheet.createRow(0);
             String[] headers = { "ID", "Tiêu đề", "Tác giả", "Danh mục", "Giá", "Tồn kho", "Ngày tạo" };
+            int[] columnChars = new int[headers.length];
 
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
                 cell.setCellStyle(headerStyle);
+                columnChars[i] = headers[i].length();
             }
 
             // Điền dữ liệu
+            ExcelExportEvent rowsEvent = ExcelExportEvent.start("books", "ROWS");
             int rowNum = 1;
-            for (Book book : books) {
+            Iterator<Book> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                Book book = iterator.next();
                 Row row = sheet.createRow(rowNum++);
 
                 // ID
@@ -104,7 +133,9 @@ public class ExcelExportService {
 
                 // Danh mục
                 Cell cell3 = row.createCell(3);
-                String categoryName = getCategoryName(book.getCategoryId());
+                String categoryName = book.getCategoryId() != null
+                        ? categoryNames.getOrDefault(book.getCategoryId(), "")
+                        : "";
                 cell3.setCellValue(categoryName);
                 cell3.setCellStyle(dataStyle);
 
@@ -126,34 +157,36 @@ public class ExcelExportService {
                     cell6.setCellValue(book.getCreatedAt().format(DATE_FORMATTER));
                 }
                 cell6.setCellStyle(dataStyle);
-            }
 
-            // Auto-size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+                if (rowNum <= WIDTH_SAMPLE_ROWS) {
+                    sampleWidths(row, columnChars);
+                }
             }
 
-            // Ghi ra byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
-        }
-    }
+            rowsEvent.rowCount = rowNum - 1;
+            rowsEvent.commit();
+
+            applyColumnWidths(sheet, columnChars);
 
-    private String getCategoryName(Long categoryId) {
-        if (categoryId == null)
-            return "";
-        Optional<Category> category = categoryRepository.findById(categoryId);
-        return category.map(Category::getName).orElse("");
+            // Ghi thẳng ra response
+            ExcelExportEvent writeEvent = ExcelExportEvent.start("books", "WRITE");
+            CountingOutputStream counting = new CountingOutputStream(out);
+            workbook.write(counting);
+            writeEvent.rowCount = rowNum - 1;
+            writeEvent.bytesWritten = counting.count;
+            writeEvent.commit();
+        } finally {
+            workbook.dispose();
+        }
     }
 
     /**
      * Xuất toàn bộ đơn hàng ra file Excel
      */
-    public byte[] exportOrdersToExcel() throws IOException {
-        List<Order> orders = orderRepository.findAll();
-
-        try (Workbook workbook = new XSSFWorkbook()) {
+    public void exportOrdersToExcel(OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try (workbook; Stream<Order> orders = streamAll(Order.class, "id")) {
             Sheet sheet = workbook.createSheet("Danh sách đơn hàng");
 
             // Style cho header
@@ -203,16 +236,21 @@ public class ExcelExportService {
             String[] headers = { "Mã đơn hàng", "Người nhận", "SĐT", "Địa chỉ", "Phương thức thanh toán",
                     "Trạng thái thanh toán", "Trạng thái đơn hàng", "Tổng tiền", "Giảm giá", "Thành tiền",
                     "Ngày đặt", "Ngày thanh toán" };
+            int[] columnChars = new int[headers.length];
 
             for (int i = 0; i < headers.length; i++) {
                 Cell cell = headerRow.createCell(i);
                 cell.setCellValue(headers[i]);
                 cell.setCellStyle(headerStyle);
+                columnChars[i] = headers[i].length();
             }
 
             // Điền dữ liệu
+            ExcelExportEvent rowsEvent = ExcelExportEvent.start("orders", "ROWS");
             int rowNum = 1;
-            for (Order order : orders) {
+            Iterator<Order> iterator = orders.iterator();
+            while (iterator.hasNext()) {
+                Order order = iterator.next();
                 Row row = sheet.createRow(rowNum++);
 
                 // Mã đơn hàng
@@ -286,17 +324,86 @@ public class ExcelExportService {
                     cell11.setCellValue(order.getPaidAt().format(DATE_FORMATTER));
                 }
                 cell11.setCellStyle(dataStyle);
+
+                if (rowNum <= WIDTH_SAMPLE_ROWS) {
+                    sampleWidths(row, columnChars);
+                }
             }
 
-            // Auto-size columns
-            for (int i = 0; i < headers.length; i++) {
-                sheet.autoSizeColumn(i);
+            rowsEvent.rowCount = rowNum - 1;
+            rowsEvent.commit();
+
+            applyColumnWidths(sheet, columnChars);
+
+            // Ghi thẳng ra response
+            ExcelExportEvent writeEvent = ExcelExportEvent.start("orders", "WRITE");
+            CountingOutputStream counting = new CountingOutputStream(out);
+            workbook.write(counting);
+            writeEvent.rowCount = rowNum - 1;
+            writeEvent.bytesWritten = counting.count;
+            writeEvent.commit();
+        } finally {
+            workbook.dispose();
+        }
+    }
+
+    /**
+     * Đọc toàn bộ collection qua MongoDB cursor theo lô (không nạp hết vào List)
+     */
+    private <T> Stream<T> streamAll(Class<T> type, String sortField) {
+        Query query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, sortField))
+                .cursorBatchSize(CURSOR_BATCH_SIZE);
+        return mongoTemplate.stream(query, type);
+    }
+
+    /**
+     * Ghi nhận độ dài ký tự lớn nhất của mỗi cột trong dòng mẫu
+     */
+    private void sampleWidths(Row row, int[] columnChars) {
+        for (int i = 0; i < columnChars.length; i++) {
+            Cell cell = row.getCell(i);
+            if (cell == null) {
+                continue;
             }
+            int length = switch (cell.getCellType()) {
+                case STRING -> cell.getStringCellValue().length();
+                // Số tiền hiển thị kèm dấu phân cách và " VNĐ"
+                case NUMERIC -> String.valueOf((long) cell.getNumericCellValue()).length() + 6;
+                default -> 0;
+            };
+            columnChars[i] = Math.max(columnChars[i], length);
+        }
+    }
+
+    private void applyColumnWidths(Sheet sheet, int[] columnChars) {
+        for (int i = 0; i < columnChars.length; i++) {
+            int chars = Math.min(columnChars[i], MAX_COLUMN_CHARS) + 2;
+            sheet.setColumnWidth(i, chars * 256);
+        }
+    }
+
+    /**
+     * Đếm số byte ghi ra response (trường bytesWritten của ExcelExportEvent)
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
 
-            // Ghi ra byte array
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            workbook.write(outputStream);
-            return outputStream.toByteArray();
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
         }
     }
 
@@ -318,6 +425,7 @@ public class ExcelExportService {
             case "SHIPPED" -> "Đang giao";
             case "COMPLETED" -> "Hoàn thành";
             case "CANCELLED" -> "Đã hủy";
+            case "REFUND_REQUIRED" -> "Cần hoàn tiền";
             default -> status;
         };
     }
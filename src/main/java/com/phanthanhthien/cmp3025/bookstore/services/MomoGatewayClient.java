@@ -0,0 +1,177 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MoMo Gateway Client - HTTP client gọi cổng thanh toán MoMo
+ *
+ * - JDK HttpClient dùng chung: giữ kết nối keep-alive (connection pool),
+ *   connect timeout và read timeout chặt
+ * - Bulkhead: giới hạn số request đồng thời tới MoMo, quá giới hạn thì từ chối
+ *   ngay thay vì giữ thread Tomcat chờ
+ * - Circuit breaker: sau N lỗi liên tiếp (lỗi I/O, timeout, HTTP 5xx) thì ngắt
+ *   mạch, fail fast trong một khoảng thời gian rồi cho một request thử (half-open)
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+@Component
+public class MomoGatewayClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(MomoGatewayClient.class);
+
+    @Value("${momo.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${momo.http.read-timeout-ms:5000}")
+    private long readTimeoutMs;
+
+    @Value("${momo.http.max-concurrent-calls:20}")
+    private int maxConcurrentCalls;
+
+    @Value("${momo.http.bulkhead-wait-ms:100}")
+    private long bulkheadWaitMs;
+
+    @Value("${momo.http.breaker-failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${momo.http.breaker-open-ms:30000}")
+    private long openDurationMs;
+
+    private RestTemplate restTemplate;
+
+    private Semaphore bulkhead;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean halfOpenTrial = new AtomicBoolean();
+    private volatile long openedAt = 0;
+
+    @PostConstruct
+    public void init() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient);
+        requestFactory.setReadTimeout(Duration.ofMillis(readTimeoutMs));
+
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * POST JSON tới MoMo, áp dụng circuit breaker và bulkhead
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> post(String url, Map<String, Object> body) {
+        boolean trial = beforeCall();
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(bulkheadWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            releaseTrial(trial);
+            throw new IllegalStateException("Yêu cầu thanh toán bị gián đoạn");
+        }
+        if (!acquired) {
+            releaseTrial(trial);
+            logger.warn("⚠️ MoMo bulkhead đầy ({} request đang chờ phản hồi)", maxConcurrentCalls);
+            throw new IllegalStateException("Cổng thanh toán MoMo đang quá tải, vui lòng thử lại sau");
+        }
+
+        try {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(body, headers);
+
+            ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.POST, entity, Map.class);
+            onSuccess();
+            return response.getBody();
+        } catch (HttpStatusCodeException e) {
+            // MoMo vẫn trả lời: chỉ 5xx tính là lỗi, 4xx là lỗi của request
+            if (e.getStatusCode().is5xxServerError()) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        } catch (ResourceAccessException e) {
+            // Lỗi I/O: không kết nối được, connect / read timeout
+            onFailure();
+            throw e;
+        } finally {
+            bulkhead.release();
+            releaseTrial(trial);
+        }
+    }
+
+    /**
+     * Trạng thái circuit breaker: CLOSED, OPEN, HALF_OPEN
+     */
+    public String getState() {
+        if (consecutiveFailures.get() < failureThreshold) {
+            return "CLOSED";
+        }
+        return System.currentTimeMillis() - openedAt < openDurationMs ? "OPEN" : "HALF_OPEN";
+    }
+
+    /**
+     * Số request đang gọi MoMo
+     */
+    public int getInFlightCalls() {
+        return maxConcurrentCalls - bulkhead.availablePermits();
+    }
+
+    /**
+     * Kiểm tra circuit breaker trước khi gọi
+     *
+     * @return true nếu đây là request thử ở trạng thái half-open
+     */
+    private boolean beforeCall() {
+        String state = getState();
+        if ("CLOSED".equals(state)) {
+            return false;
+        }
+        if ("HALF_OPEN".equals(state) && halfOpenTrial.compareAndSet(false, true)) {
+            return true;
+        }
+        throw new IllegalStateException("Cổng thanh toán MoMo tạm thời không khả dụng, vui lòng thử lại sau");
+    }
+
+    private void releaseTrial(boolean trial) {
+        if (trial) {
+            halfOpenTrial.set(false);
+        }
+    }
+
+    private void onSuccess() {
+        if (consecutiveFailures.getAndSet(0) >= failureThreshold) {
+            logger.info("✅ MoMo circuit breaker đóng lại");
+        }
+    }
+
+    private void onFailure() {
+        int failures = consecutiveFailures.incrementAndGet();
+        if (failures >= failureThreshold) {
+            openedAt = System.currentTimeMillis();
+            logger.error("❌ MoMo circuit breaker mở sau {} lỗi liên tiếp", failures);
+        }
+    }
+}
@@ -1,24 +1,41 @@
 package com.phanthanhthien.cmp3025.bookstore.services;
 
-import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.CartItem;
 import com.phanthanhthien.cmp3025.bookstore.entities.Order;
-import com.phanthanhthien.cmp3025.bookstore.repository.BookRepository;
+import com.phanthanhthien.cmp3025.bookstore.monitoring.PaymentStockEvent;
 import com.phanthanhthien.cmp3025.bookstore.repository.OrderRepository;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
 import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 /**
@@ -30,6 +47,9 @@ public class MomoPaymentService {
 
     private static final Logger logger = LoggerFactory.getLogger(MomoPaymentService.class);
 
+    // Mảng orderId trên books: đơn nào đã trừ kho sách này nhưng chưa ghi nhận xong
+    private static final String STOCK_MARKER = "stockOrders";
+
     @Value("${momo.partner-code:MOMOBKUN20180529}")
     private String partnerCode;
 
@@ -52,9 +72,16 @@ public class MomoPaymentService {
     private OrderRepository orderRepository;
 
     @Autowired
-    private BookRepository bookRepository;
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    @Autowired
+    private CatalogCache catalogCache;
+
+    @Autowired
+    private MomoGatewayClient momoGatewayClient;
 
     /**
      * Tạo yêu cầu thanh toán MoMo
@@ -109,18 +136,8 @@ public class MomoPaymentService {
 
             logger.info("📤 Gửi yêu cầu thanh toán MoMo cho đơn hàng: {}", orderId);
 
-            // Gọi API MoMo
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    endpoint,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class);
-
-            Map<String, Object> responseBody = response.getBody();
+            // Gọi API MoMo (pooled client, timeout, bulkhead, circuit breaker)
+            Map<String, Object> responseBody = momoGatewayClient.post(endpoint, requestBody);
             logger.info("📥 Phản hồi từ MoMo: {}", responseBody);
 
             return responseBody;
@@ -136,64 +153,208 @@ public class MomoPaymentService {
      */
     public boolean processCallback(String orderId, String requestId, int resultCode, String transId) {
         try {
-            // Trích xuất orderId gốc (bỏ phần timestamp nếu có)
-            String originalOrderId = orderId;
-            if (orderId.contains("_")) {
-                originalOrderId = orderId.substring(0, orderId.lastIndexOf("_"));
-            }
+            return applyPaymentResult(orderId, resultCode, transId);
+        } catch (Exception e) {
+            logger.error("❌ Lỗi xử lý callback: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Áp dụng kết quả thanh toán cho đơn hàng (idempotent)
+     *
+     * Trạng thái SUCCESS và stockStatus = PENDING được đặt trong cùng một
+     * findAndModify có điều kiện. Bước trừ kho chạy khi stockStatus chưa xong,
+     * kể cả khi thanh toán đã SUCCESS từ lần trước (lần đó lỗi giữa chừng);
+     * lỗi trừ kho được ném lại để PaymentEventWorker thử lại / đưa vào DEAD.
+     *
+     * @return true nếu thanh toán thành công
+     * @throws IllegalArgumentException nếu không tìm thấy đơn hàng
+     */
+    public boolean applyPaymentResult(String orderId, int resultCode, String transId) {
+        // Trích xuất orderId gốc (bỏ phần timestamp nếu có)
+        String originalOrderId = orderId;
+        if (orderId.contains("_")) {
+            originalOrderId = orderId.substring(0, orderId.lastIndexOf("_"));
+        }
+
+        Query notYetPaid = new Query(Criteria.where("id").is(originalOrderId).and("paymentStatus").ne("SUCCESS"));
+
+        if (resultCode == 0) {
+            // Thanh toán thành công
+            Update update = new Update()
+                    .set("paymentStatus", "SUCCESS")
+                    .set("stockStatus", "PENDING")
+                    .set("momoTransId", transId)
+                    .set("paidAt", LocalDateTime.now());
+            Order order = mongoTemplate.findAndModify(notYetPaid, update,
+                    FindAndModifyOptions.options().returnNew(true), Order.class);
 
-            Order order = orderRepository.findById(originalOrderId).orElse(null);
             if (order == null) {
-                logger.error("❌ Không tìm thấy đơn hàng: {}", originalOrderId);
-                return false;
+                String id = originalOrderId;
+                order = orderRepository.findById(id)
+                        .orElseThrow(() -> new IllegalArgumentException("Không tìm thấy đơn hàng: " + id));
+                if (!"PENDING".equals(order.getStockStatus())) {
+                    // Callback và IPN cùng báo về -> không trừ kho lần hai
+                    logger.info("ℹ️ Đơn hàng {} đã được xử lý thanh toán trước đó", originalOrderId);
+                    return true;
+                }
+                logger.warn("🔁 Đơn hàng {} đã thanh toán nhưng chưa trừ kho xong - chạy lại bước trừ kho",
+                        originalOrderId);
             }
 
-            if (resultCode == 0) {
-                // Thanh toán thành công
-                order.setPaymentStatus("SUCCESS");
-                order.setMomoTransId(transId);
-                order.setPaidAt(LocalDateTime.now());
-
-                // Giảm số lượng tồn kho
-                try {
-                    for (var item : order.getItems()) {
-                        Book book = bookRepository.findById(item.getBookId()).orElse(null);
-                        if (book != null) {
-                            int currentStock = book.getStock() != null ? book.getStock() : 0;
-                            int quantity = item.getQuantity() != null ? item.getQuantity() : 1;
-                            int newStock = currentStock - quantity;
-
-                            if (newStock < 0) {
-                                logger.warn("⚠️ Số lượng tồn kho âm cho sách ID {}: {} -> {}",
-                                        book.getId(), currentStock, newStock);
-                                newStock = 0;
-                            }
-
-                            book.setStock(newStock);
-                            bookRepository.save(book);
-
-                            logger.info("📦 Giảm tồn kho - Sách ID {}: {} -> {}",
-                                    book.getId(), currentStock, newStock);
-                        }
-                    }
-                } catch (Exception e) {
-                    logger.error("❌ Lỗi khi giảm tồn kho: {}", e.getMessage());
-                }
+            applyStock(order, transId);
+            logger.info("✅ Thanh toán thành công cho đơn hàng: {}", orderId);
+            return true;
+        }
+
+        // Thanh toán thất bại (không ghi đè đơn đã thanh toán thành công)
+        UpdateResult result = mongoTemplate.updateFirst(notYetPaid,
+                new Update().set("paymentStatus", "FAILED"), Order.class);
+        if (result.getMatchedCount() == 0 && !orderRepository.existsById(originalOrderId)) {
+            throw new IllegalArgumentException("Không tìm thấy đơn hàng: " + originalOrderId);
+        }
+        logger.warn("❌ Thanh toán thất bại cho đơn hàng: {}, mã lỗi: {}", orderId, resultCode);
+        return false;
+    }
+
+    /**
+     * Bước trừ kho của đơn đã thanh toán, chạy lại được nhiều lần
+     *
+     * Chỉ lần chuyển stockStatus PENDING -> DONE thành công mới gỡ dấu trên
+     * books và cập nhật chỉ mục, nên callback và worker chạy trùng vẫn đúng.
+     */
+    private void applyStock(Order order, String transId) {
+        String orderId = order.getId();
+        Query stockPending = new Query(Criteria.where("id").is(orderId).and("stockStatus").is("PENDING"));
+
+        // Giảm số lượng tồn kho (một bulkWrite, có điều kiện stock >= qty)
+        PaymentStockEvent stockEvent = new PaymentStockEvent();
+        stockEvent.orderId = orderId;
+        stockEvent.transId = transId;
+        stockEvent.begin();
+        try {
+            Map<Long, Boolean> stockReport = decreaseStock(orderId, order.getItems());
+            stockEvent.itemCount = stockReport.size();
+            stockEvent.failedItems = (int) stockReport.values().stream().filter(ok -> !ok).count();
+
+            if (stockReport.containsValue(false)) {
+                // Đơn đã thu tiền -> không tự hủy, chờ quản trị viên hoàn tiền
+                logger.error("❌ Không đủ tồn kho cho đơn hàng {}: {} - đã hoàn tác, cần hoàn tiền",
+                        orderId, stockReport);
+                mongoTemplate.updateFirst(stockPending,
+                        new Update().set("stockStatus", "FAILED").set("orderStatus", "REFUND_REQUIRED"), Order.class);
+                return;
+            }
 
-                logger.info("✅ Thanh toán thành công cho đơn hàng: {}", orderId);
-            } else {
-                // Thanh toán thất bại
-                order.setPaymentStatus("FAILED");
-                logger.warn("❌ Thanh toán thất bại cho đơn hàng: {}, mã lỗi: {}", orderId, resultCode);
+            UpdateResult done = mongoTemplate.updateFirst(stockPending,
+                    new Update().set("stockStatus", "DONE"), Order.class);
+            if (done.getModifiedCount() > 0) {
+                releaseStockMarkers(orderId, order.getItems());
             }
+        } catch (RuntimeException e) {
+            logger.error("❌ Lỗi khi giảm tồn kho cho đơn hàng {}: {}", orderId, e.getMessage());
+            throw e;
+        } finally {
+            stockEvent.commit();
+        }
+    }
 
-            orderRepository.save(order);
-            return resultCode == 0;
+    /**
+     * Giảm tồn kho cho tất cả sách trong đơn bằng một bulkWrite duy nhất
+     *
+     * Mỗi dòng là một $inc: {stock: -qty} có điều kiện stock >= qty nên không
+     * bao giờ bán vượt tồn kho dù nhiều đơn thanh toán cùng lúc. Dòng nào trừ
+     * được thì gắn orderId vào books.stockOrders ($addToSet), filter loại các
+     * sách đã mang dấu của đơn nên chạy lại không trừ hai lần. Nếu số dòng khớp
+     * ít hơn số sách, một lần đọc theo dấu đó cho biết dòng nào đã trừ; có dòng
+     * thất bại thì hoàn lại các dòng đã trừ để đơn hàng là tất cả hoặc không.
+     * Khi đã ghi nhận xong, gọi releaseStockMarkers để gỡ dấu.
+     *
+     * @return Kết quả theo từng sách: bookId -> true nếu đã trừ kho
+     */
+    public Map<Long, Boolean> decreaseStock(String orderId, List<CartItem> items) {
+        Map<Long, Integer> quantities = mergeQuantities(items);
+        Map<Long, Boolean> report = new LinkedHashMap<>();
+        if (quantities.isEmpty()) {
+            return report;
+        }
 
-        } catch (Exception e) {
-            logger.error("❌ Lỗi xử lý callback: {}", e.getMessage());
-            return false;
+        List<WriteModel<Document>> updates = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            updates.add(new UpdateOneModel<>(
+                    Filters.and(
+                            Filters.eq("_id", line.getKey()),
+                            Filters.gte("stock", line.getValue()),
+                            Filters.ne(STOCK_MARKER, orderId)),
+                    Updates.combine(
+                            Updates.inc("stock", -line.getValue()),
+                            Updates.addToSet(STOCK_MARKER, orderId))));
+        }
+
+        MongoCollection<Document> books = mongoTemplate.getCollection("books");
+        int matched = books.bulkWrite(updates, new BulkWriteOptions().ordered(false)).getMatchedCount();
+        if (matched == quantities.size()) {
+            quantities.keySet().forEach(bookId -> report.put(bookId, true));
+            return report;
+        }
+
+        // Không đủ hàng, sách không tồn tại, hoặc đã trừ ở lần chạy trước -> đọc dấu để phân biệt
+        Set<Long> applied = new HashSet<>();
+        for (Document book : books.find(Filters.and(
+                        Filters.in("_id", quantities.keySet()),
+                        Filters.eq(STOCK_MARKER, orderId)))
+                .projection(Projections.include("_id"))) {
+            applied.add(((Number) book.get("_id")).longValue());
+        }
+        quantities.keySet().forEach(bookId -> report.put(bookId, applied.contains(bookId)));
+
+        if (report.containsValue(false) && !applied.isEmpty()) {
+            // Hoàn lại các dòng đã trừ kho (chỉ dòng còn mang dấu của đơn này)
+            List<WriteModel<Document>> compensations = new ArrayList<>();
+            for (Long bookId : applied) {
+                compensations.add(new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", bookId), Filters.eq(STOCK_MARKER, orderId)),
+                        Updates.combine(
+                                Updates.inc("stock", quantities.get(bookId)),
+                                Updates.pull(STOCK_MARKER, orderId))));
+            }
+            books.bulkWrite(compensations, new BulkWriteOptions().ordered(false));
+        }
+        return report;
+    }
+
+    /**
+     * Gỡ dấu orderId khỏi các sách sau khi trừ kho đã được ghi nhận, đồng thời
+     * cập nhật chỉ mục tìm kiếm và catalog cache (bulkWrite không phát Mongo events)
+     */
+    public void releaseStockMarkers(String orderId, List<CartItem> items) {
+        Map<Long, Integer> quantities = mergeQuantities(items);
+        if (quantities.isEmpty()) {
+            return;
+        }
+        mongoTemplate.getCollection("books").updateMany(
+                Filters.in("_id", quantities.keySet()),
+                Updates.pull(STOCK_MARKER, orderId));
+
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            bookSearchIndex.adjustStock(line.getKey(), -line.getValue());
+            catalogCache.evictBook(line.getKey());
+            logger.info("📦 Giảm tồn kho - Sách ID {}: -{}", line.getKey(), line.getValue());
+        }
+    }
+
+    // Gộp số lượng theo sách
+    private static Map<Long, Integer> mergeQuantities(List<CartItem> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItem item : items) {
+            if (item.getBookId() == null) {
+                continue;
+            }
+            int quantity = item.getQuantity() != null ? item.getQuantity() : 1;
+            quantities.merge(item.getBookId(), quantity, Integer::sum);
         }
+        return quantities;
     }
 
     /**
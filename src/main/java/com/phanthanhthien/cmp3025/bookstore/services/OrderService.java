@@ -0,0 +1,65 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Order;
+import com.phanthanhthien.cmp3025.bookstore.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * OrderService - Business Logic cho Order
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Service
+public class OrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    /**
+     * Lấy một trang đơn hàng, mới nhất trước (dùng index createdAt_id_desc)
+     *
+     * _id là khóa phụ khi nhiều đơn trùng createdAt, để thứ tự giữa các
+     * trang ổn định (không lặp / sót đơn khi chuyển trang).
+     */
+    public Slice<Order> findPage(int page, int size) {
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), size,
+                Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by(Sort.Direction.DESC, "id")));
+        return orderRepository.findAllBy(pageRequest);
+    }
+
+    /**
+     * Thống kê đơn hàng bằng các lệnh đếm dùng index
+     *
+     * Tổng số đơn lấy từ metadata collection (estimatedDocumentCount), mỗi
+     * trạng thái là một countDocuments trên index paymentStatus_createdAt /
+     * orderStatus_createdAt (COUNT_SCAN), không quét toàn bộ orders.
+     *
+     * @return totalOrders, pendingOrders, successOrders, completedOrders
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new HashMap<>();
+        stats.put("totalOrders", mongoTemplate.estimatedCount(Order.class));
+        stats.put("pendingOrders", countBy("paymentStatus", "PENDING"));
+        stats.put("successOrders", countBy("paymentStatus", "SUCCESS"));
+        stats.put("completedOrders", countBy("orderStatus", "COMPLETED"));
+        return stats;
+    }
+
+    private long countBy(String field, String value) {
+        return mongoTemplate.count(new Query(Criteria.where(field).is(value)), Order.class);
+    }
+}
@@ -0,0 +1,154 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.utils.NearCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * PageCache - Cache HTML đã render của các trang catalog cho khách chưa đăng nhập
+ *
+ * - Key là path + query string, giới hạn kích thước (LRU) và có TTL
+ * - Mỗi trang lưu sẵn bản gốc và bản gzip, kèm strong ETag riêng cho từng bản
+ * - Xóa toàn bộ khi books, categories hoặc vouchers thay đổi (Mongo events trên
+ *   node này, CatalogCache báo lại các thay đổi nhận qua change stream)
+ *
+ * Việc đọc / ghi cache do PageCacheFilter thực hiện.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class PageCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PageCache.class);
+
+    private static final Set<String> WATCHED_COLLECTIONS = Set.of("books", "categories", "vouchers");
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Value("${page-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${page-cache.max-size:500}")
+    private int maxSize;
+
+    @Value("${page-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${page-cache.paths:/,/home,/danhmuc,/danhmuc/,/sach/chi-tiet/*}")
+    private List<String> paths;
+
+    private NearCache<String, CachedPage> pages;
+
+    /**
+     * Trang đã render: body gốc, body gzip và ETag của từng bản
+     */
+    public record CachedPage(String contentType, byte[] body, String etag, byte[] gzipBody, String gzipEtag) {
+    }
+
+    @PostConstruct
+    public void init() {
+        pages = new NearCache<>(maxSize, ttlSeconds * 1000);
+        if (enabled) {
+            logger.info("📄 Page cache cho khách: {} (tối đa {} trang, TTL {}s)", paths, maxSize, ttlSeconds);
+        }
+    }
+
+    /**
+     * Path có được cache hay không
+     */
+    public boolean isCacheable(String path) {
+        if (!enabled) {
+            return false;
+        }
+        for (String pattern : paths) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public CachedPage get(String key) {
+        return pages.getIfPresent(key);
+    }
+
+    /**
+     * Phiên bản cache, lấy trước khi render để không lưu trang render từ dữ liệu cũ
+     */
+    public long version() {
+        return pages.version();
+    }
+
+    /**
+     * Nén và lưu trang vừa render
+     */
+    public CachedPage store(String key, String contentType, byte[] body, long loadVersion) {
+        String hash = sha256(body);
+        CachedPage page = new CachedPage(contentType, body, "\"" + hash + "\"", gzip(body), "\"" + hash + "-gz\"");
+        pages.put(key, page, loadVersion);
+        return page;
+    }
+
+    public void clear() {
+        pages.invalidateAll();
+    }
+
+    public Map<String, Object> getStats() {
+        return pages.getStats();
+    }
+
+    // ===== Ghi trên node này =====
+
+    @EventListener
+    public void onAfterSave(AfterSaveEvent<?> event) {
+        if (WATCHED_COLLECTIONS.contains(event.getCollectionName())) {
+            clear();
+        }
+    }
+
+    @EventListener
+    public void onAfterDelete(AfterDeleteEvent<?> event) {
+        if (WATCHED_COLLECTIONS.contains(event.getCollectionName())) {
+            clear();
+        }
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            // 128 bit đầu là đủ để phân biệt các phiên bản của một trang
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.PaymentEvent;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * PaymentEventService - Outbox lưu thông báo thanh toán MoMo (collection payment_events)
+ *
+ * - append: một lệnh insert, _id = requestId:transId nên IPN gửi lại bị bỏ qua
+ * - claimNext: worker giành quyền xử lý một event bằng findAndModify (an toàn
+ *   khi chạy nhiều node); event PROCESSING quá hạn lease được giành lại
+ * - markFailed: lùi thời gian thử lại theo cấp số nhân, quá số lần thì DEAD
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+@Service
+public class PaymentEventService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventService.class);
+
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${payment.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${payment.outbox.lease-seconds:60}")
+    private long leaseSeconds;
+
+    @Value("${payment.outbox.retry-base-seconds:2}")
+    private long retryBaseSeconds;
+
+    /**
+     * Ghi IPN vào outbox
+     *
+     * @return false nếu IPN này đã được ghi trước đó (MoMo gửi lại)
+     */
+    public boolean append(String orderId, String requestId, String transId, int resultCode,
+            Map<String, Object> payload) {
+        try {
+            mongoTemplate.insert(new PaymentEvent(orderId, requestId, transId, resultCode, payload));
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Giành quyền xử lý event đến hạn sớm nhất
+     *
+     * @return null nếu không còn event nào cần xử lý
+     */
+    public PaymentEvent claimNext() {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().orOperator(
+                Criteria.where("status").is(PaymentEvent.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(PaymentEvent.PROCESSING).and("lockedUntil").lt(now)))
+                .with(Sort.by("nextAttemptAt"));
+        Update update = new Update()
+                .set("status", PaymentEvent.PROCESSING)
+                .set("lockedUntil", now.plusSeconds(leaseSeconds))
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), PaymentEvent.class);
+    }
+
+    public void markDone(PaymentEvent event) {
+        Update update = new Update()
+                .set("status", PaymentEvent.DONE)
+                .set("processedAt", LocalDateTime.now())
+                .unset("lockedUntil");
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(event.getId())), update, PaymentEvent.class);
+    }
+
+    /**
+     * Ghi nhận lần xử lý lỗi: hẹn thử lại, hoặc chuyển sang DEAD
+     *
+     * @param permanent lỗi không thể khắc phục bằng cách thử lại (vd. không có đơn hàng)
+     */
+    public void markFailed(PaymentEvent event, Exception error, boolean permanent) {
+        int attempts = event.getAttempts() != null ? event.getAttempts() : 1;
+        String message = String.valueOf(error.getMessage());
+        if (message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+
+        Update update = new Update().set("lastError", message).unset("lockedUntil");
+        if (permanent || attempts >= maxAttempts) {
+            update.set("status", PaymentEvent.DEAD);
+            logger.error("☠️ Payment event {} chuyển sang DEAD sau {} lần thử: {}", event.getId(), attempts, message);
+        } else {
+            long delaySeconds = retryBaseSeconds << Math.min(attempts - 1, 10);
+            update.set("status", PaymentEvent.PENDING)
+                    .set("nextAttemptAt", LocalDateTime.now().plusSeconds(delaySeconds));
+            logger.warn("⚠️ Payment event {} lỗi (lần {}), thử lại sau {}s: {}",
+                    event.getId(), attempts, delaySeconds, message);
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("id").is(event.getId())), update, PaymentEvent.class);
+    }
+
+    /**
+     * Số event theo trạng thái
+     */
+    public Map<String, Long> countByStatus() {
+        Aggregation aggregation = Aggregation.newAggregation(Aggregation.group("status").count().as("count"));
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Document group : mongoTemplate.aggregate(aggregation, PaymentEvent.class, Document.class)
+                .getMappedResults()) {
+            counts.put(String.valueOf(group.get("_id")), ((Number) group.get("count")).longValue());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,117 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.PaymentEvent;
+import com.phanthanhthien.cmp3025.bookstore.utils.ThreadFactories;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaymentEventWorker - Pool worker xử lý outbox payment_events ở nền
+ *
+ * Định kỳ (và ngay sau khi nhận IPN) giành event đến hạn và giao cho pool.
+ * Xử lý idempotent: MomoPaymentService.applyPaymentResult chỉ trừ kho khi
+ * đơn hàng chuyển sang SUCCESS lần đầu.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+@Component
+public class PaymentEventWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentEventWorker.class);
+
+    @Autowired
+    private PaymentEventService paymentEventService;
+
+    @Autowired
+    private MomoPaymentService momoPaymentService;
+
+    @Value("${payment.outbox.workers:4}")
+    private int workers;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    private ExecutorService executor;
+
+    // Số worker còn rảnh
+    private Semaphore slots;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(workers, ThreadFactories.named("payment-worker", virtualThreads));
+        slots = new Semaphore(workers);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Đánh thức worker ngay khi có event mới, không chờ chu kỳ poll
+     */
+    public void wakeUp() {
+        try {
+            executor.execute(this::poll);
+        } catch (RejectedExecutionException e) {
+            // Đang tắt ứng dụng - event sẽ được xử lý khi khởi động lại
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${payment.outbox.poll-interval-ms:1000}")
+    public void poll() {
+        while (slots.tryAcquire()) {
+            PaymentEvent event;
+            try {
+                event = paymentEventService.claimNext();
+            } catch (Exception e) {
+                slots.release();
+                logger.error("❌ Không lấy được payment event: {}", e.getMessage());
+                return;
+            }
+            if (event == null) {
+                slots.release();
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        process(event);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Lease hết hạn thì event được giành lại
+                slots.release();
+                return;
+            }
+        }
+    }
+
+    private void process(PaymentEvent event) {
+        try {
+            momoPaymentService.applyPaymentResult(event.getOrderId(),
+                    event.getResultCode() != null ? event.getResultCode() : -1, event.getTransId());
+            paymentEventService.markDone(event);
+            logger.info("✅ Đã xử lý payment event {}", event.getId());
+        } catch (IllegalArgumentException e) {
+            paymentEventService.markFailed(event, e, true);
+        } catch (Exception e) {
+            paymentEventService.markFailed(event, e, false);
+        }
+    }
+}
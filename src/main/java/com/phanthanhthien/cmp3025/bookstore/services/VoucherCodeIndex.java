@@ -0,0 +1,257 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+import com.phanthanhthien.cmp3025.bookstore.utils.BloomFilter;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * VoucherCodeIndex - Chỉ mục voucher đang hoạt động trong bộ nhớ, theo mã đã chuẩn hóa
+ *
+ * - Bloom filter chứa mã của mọi voucher: mã không tồn tại bị loại ngay
+ * - Map code -> voucher chỉ giữ voucher isActive = true (bản sao, không
+ *   chia sẻ instance với nơi gọi)
+ * - Cập nhật qua Mongo lifecycle events (tạo / sửa / bật tắt / xóa trên node này)
+ *   và change stream của collection vouchers (thay đổi từ node khác)
+ *
+ * Chỉ dùng để kiểm tra nhanh khi nhập mã; trừ lượt sử dụng vẫn kiểm tra
+ * nguyên tử trên database (VoucherService.incrementUsage).
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Component
+public class VoucherCodeIndex extends AbstractMongoEventListener<Voucher> {
+
+    private static final Logger logger = LoggerFactory.getLogger(VoucherCodeIndex.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    // Chừa chỗ cho voucher tạo thêm trước lần dựng lại kế tiếp
+    private static final int MIN_BLOOM_CAPACITY = 1024;
+
+    // Số lần nạp không giữ lock trước khi nạp trong lock
+    private static final int OPTIMISTIC_LOADS = 3;
+
+    // Thời gian chờ change stream mở lần đầu trước khi tự nạp
+    private static final long FIRST_CONNECT_WAIT_MS = 10_000;
+
+    @Autowired
+    @Lazy
+    private MongoTemplate mongoTemplate;
+
+    @Value("${voucher.index.change-stream-enabled:true}")
+    private boolean changeStreamEnabled;
+
+    private volatile BloomFilter knownCodes = new BloomFilter(MIN_BLOOM_CAPACITY, FALSE_POSITIVE_RATE);
+
+    // mã chuẩn hóa -> voucher đang hoạt động
+    private final Map<String, Voucher> activeByCode = new ConcurrentHashMap<>();
+
+    // voucherId -> mã chuẩn hóa (để gỡ mã cũ khi voucher đổi mã / bị xóa)
+    private final Map<String, String> codeById = new ConcurrentHashMap<>();
+
+    // Ghi (put / remove / rebuild) tuần tự, đọc không cần lock
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Tăng ở mỗi put / remove (trong lock): rebuild biết có ghi xen giữa lúc đọc DB
+    private volatile long version = 0;
+
+    private ChangeStreamWatcher watcher;
+
+    /**
+     * Nạp chỉ mục khi khởi động
+     *
+     * Có change stream thì lần nạp đầu là onRestart của watcher (chạy sau khi
+     * cursor đã mở, không bỏ sót thay đổi); chỉ tự nạp khi change stream tắt
+     * hoặc không mở được.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (changeStreamEnabled) {
+            watcher = new ChangeStreamWatcher("voucher", mongoTemplate.getDb(), List.of("vouchers"),
+                    this::onChange, this::rebuild);
+            watcher.start();
+            if (watcher.awaitFirstConnect(FIRST_CONNECT_WAIT_MS)) {
+                return;
+            }
+            logger.warn("⚠️ Change stream voucher chưa sẵn sàng, nạp chỉ mục trực tiếp");
+        }
+        rebuild();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (watcher != null) {
+            watcher.stop();
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ voucher
+     *
+     * findAll chạy ngoài lock để không chặn put / remove. Nếu trong lúc đọc
+     * có put / remove (version đổi), bản đọc có thể cũ hơn chỉ mục nên bị bỏ
+     * và đọc lại; sau OPTIMISTIC_LOADS lần thì đọc trong lock.
+     */
+    public void rebuild() {
+        for (int attempt = 0; attempt < OPTIMISTIC_LOADS; attempt++) {
+            long seen = version;
+            List<Voucher> vouchers = mongoTemplate.findAll(Voucher.class);
+            lock.lock();
+            try {
+                if (version == seen) {
+                    replaceAll(vouchers);
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            logger.debug("🔁 Voucher thay đổi trong lúc nạp chỉ mục, đọc lại");
+        }
+
+        lock.lock();
+        try {
+            replaceAll(mongoTemplate.findAll(Voucher.class));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Thay toàn bộ nội dung chỉ mục, gọi khi đang giữ lock
+    private void replaceAll(List<Voucher> vouchers) {
+        activeByCode.clear();
+        codeById.clear();
+        knownCodes = new BloomFilter(Math.max(MIN_BLOOM_CAPACITY, vouchers.size() * 2), FALSE_POSITIVE_RATE);
+        for (Voucher voucher : vouchers) {
+            put(voucher);
+        }
+        logger.info("🎟️ Đã nạp {} voucher vào chỉ mục ({} đang hoạt động)", vouchers.size(), activeByCode.size());
+    }
+
+    /**
+     * Tìm voucher đang hoạt động theo mã, không truy vấn MongoDB
+     *
+     * Trả về bản sao: nơi gọi sửa voucher không làm đổi chỉ mục dùng chung.
+     */
+    public Optional<Voucher> findActive(String code) {
+        String key = normalize(code);
+        if (key.isEmpty() || !knownCodes.mightContain(key)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(activeByCode.get(key)).map(Voucher::new);
+    }
+
+    /**
+     * Thêm / cập nhật một voucher trong chỉ mục
+     */
+    public void put(Voucher voucher) {
+        if (voucher == null || voucher.getId() == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            remove(voucher.getId());
+
+            String key = normalize(voucher.getCode());
+            if (key.isEmpty()) {
+                return;
+            }
+            knownCodes.add(key);
+            codeById.put(voucher.getId(), key);
+            if (Boolean.TRUE.equals(voucher.getIsActive())) {
+                // Giữ bản sao, entity của nơi gọi có thể bị sửa tiếp sau khi lưu
+                activeByCode.put(key, new Voucher(voucher));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gỡ voucher khỏi chỉ mục (Bloom filter giữ nguyên, được làm sạch khi rebuild)
+     */
+    public void remove(String voucherId) {
+        lock.lock();
+        try {
+            version++;
+            String key = codeById.remove(voucherId);
+            if (key != null) {
+                activeByCode.remove(key);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        return activeByCode.size();
+    }
+
+    /**
+     * Chuẩn hóa mã: bỏ khoảng trắng hai đầu, viết hoa
+     *
+     * VoucherService lưu mã ở dạng này, nên khóa trong chỉ mục trùng với giá
+     * trị có unique index trên database.
+     */
+    public static String normalize(String code) {
+        return code == null ? "" : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // ===== Ghi trên node này =====
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<Voucher> event) {
+        put(event.getSource());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<Voucher> event) {
+        Object id = event.getSource() != null ? event.getSource().get("_id") : null;
+        if (id != null) {
+            remove(id.toString());
+        } else {
+            rebuild();
+        }
+    }
+
+    // ===== Change stream =====
+
+    private void onChange(ChangeStreamDocument<Document> change) {
+        BsonValue id = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        if (id == null) {
+            rebuild();
+            return;
+        }
+        String voucherId = id.isObjectId() ? id.asObjectId().getValue().toHexString()
+                : id.isString() ? id.asString().getValue() : id.toString();
+
+        Voucher voucher = mongoTemplate.findById(voucherId, Voucher.class);
+        if (voucher != null) {
+            put(voucher);
+        } else {
+            remove(voucherId);
+        }
+    }
+}
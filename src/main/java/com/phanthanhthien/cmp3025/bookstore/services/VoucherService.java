@@ -3,6 +3,13 @@ package com.phanthanhthien.cmp3025.bookstore.services;
 import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
 import com.phanthanhthien.cmp3025.bookstore.repository.VoucherRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -22,6 +29,12 @@ public class VoucherService {
     @Autowired
     private VoucherRepository voucherRepository;
 
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private VoucherCodeIndex voucherCodeIndex;
+
     /**
      * Lấy tất cả vouchers
      */
@@ -44,22 +57,26 @@ public class VoucherService {
     }
 
     /**
-     * Tìm voucher theo code
+     * Tìm voucher theo code (không phân biệt hoa thường)
      */
     public Optional<Voucher> findByCode(String code) {
-        return voucherRepository.findByCode(code);
+        return voucherRepository.findByCode(VoucherCodeIndex.normalize(code));
     }
 
     /**
      * Tạo voucher mới
+     *
+     * Mã được lưu ở dạng chuẩn hóa (VoucherCodeIndex.normalize) nên unique
+     * index trên code chặn cả "sale50" lẫn "SALE50".
      */
     public Voucher create(Voucher voucher) {
+        voucher.setCode(VoucherCodeIndex.normalize(voucher.getCode()));
         if (voucherRepository.existsByCode(voucher.getCode())) {
             throw new IllegalArgumentException("Mã voucher đã tồn tại!");
         }
         voucher.setCreatedAt(LocalDateTime.now());
         voucher.setUpdatedAt(LocalDateTime.now());
-        return voucherRepository.save(voucher);
+        return saveUnique(voucher);
     }
 
     /**
@@ -72,7 +89,11 @@ public class VoucherService {
         }
 
         Voucher voucher = existingVoucher.get();
-        voucher.setCode(voucherDetails.getCode());
+        String code = VoucherCodeIndex.normalize(voucherDetails.getCode());
+        if (!code.equals(voucher.getCode()) && voucherRepository.existsByCode(code)) {
+            throw new IllegalArgumentException("Mã voucher đã tồn tại!");
+        }
+        voucher.setCode(code);
         voucher.setDescription(voucherDetails.getDescription());
         voucher.setDiscountPercent(voucherDetails.getDiscountPercent());
         voucher.setMaxDiscountAmount(voucherDetails.getMaxDiscountAmount());
@@ -83,7 +104,16 @@ public class VoucherService {
         voucher.setIsActive(voucherDetails.getIsActive());
         voucher.onUpdate();
 
-        return voucherRepository.save(voucher);
+        return saveUnique(voucher);
+    }
+
+    // Hai admin lưu cùng một mã cùng lúc -> unique index báo trùng
+    private Voucher saveUnique(Voucher voucher) {
+        try {
+            return voucherRepository.save(voucher);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Mã voucher đã tồn tại!");
+        }
     }
 
     /**
@@ -95,9 +125,13 @@ public class VoucherService {
 
     /**
      * Xác thực voucher
+     *
+     * Tra cứu từ VoucherCodeIndex trong bộ nhớ, không truy vấn MongoDB.
+     * Lượt sử dụng ở đây có thể cũ vài mili giây; incrementUsage mới là bước
+     * kiểm tra cuối cùng trên database.
      */
     public Optional<Voucher> validateVoucher(String code, BigDecimal orderAmount) {
-        Optional<Voucher> voucherOpt = voucherRepository.findByCode(code);
+        Optional<Voucher> voucherOpt = voucherCodeIndex.findActive(code);
 
         if (voucherOpt.isEmpty()) {
             return Optional.empty();
@@ -151,16 +185,31 @@ public class VoucherService {
     }
 
     /**
-     * Tăng số lần sử dụng voucher
+     * Tăng số lần sử dụng voucher (atomic, có giới hạn)
+     *
+     * Một lệnh findAndModify duy nhất: chỉ $inc currentUsage khi voucher đang
+     * hoạt động, còn trong hạn và currentUsage < maxUsage. Nhiều checkout đồng
+     * thời không thể vượt quá maxUsage hay ghi đè lẫn nhau.
+     *
+     * @return true nếu đã sử dụng được voucher, false nếu hết lượt / hết hạn
      */
-    public void incrementUsage(String voucherId) {
-        Optional<Voucher> voucherOpt = voucherRepository.findById(voucherId);
-        if (voucherOpt.isPresent()) {
-            Voucher voucher = voucherOpt.get();
-            voucher.setCurrentUsage(voucher.getCurrentUsage() + 1);
-            voucher.onUpdate();
-            voucherRepository.save(voucher);
-        }
+    public boolean incrementUsage(String voucherId) {
+        LocalDateTime now = LocalDateTime.now();
+        Query query = new Query(new Criteria().andOperator(
+                Criteria.where("id").is(voucherId),
+                Criteria.where("isActive").is(true),
+                Criteria.where("validFrom").lte(now),
+                Criteria.where("validTo").gte(now),
+                Criteria.expr(ComparisonOperators.valueOf("currentUsage").lessThan("maxUsage"))));
+        Update update = new Update()
+                .inc("currentUsage", 1)
+                .set("updatedAt", now);
+
+        Voucher redeemed = mongoTemplate.findAndModify(query, update,
+                FindAndModifyOptions.options().returnNew(true), Voucher.class);
+        // findAndModify không phát Mongo events -> cập nhật lượt dùng trong chỉ mục
+        voucherCodeIndex.put(redeemed);
+        return redeemed != null;
     }
 
     /**
@@ -0,0 +1,205 @@
+package com.phanthanhthien.cmp3025.bookstore.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * NearCache - Cache trong bộ nhớ có giới hạn kích thước (LRU) và TTL cho từng entry
+ *
+ * Đọc xuyên (read-through): khi miss thì gọi loader rồi lưu kết quả.
+ * Giá trị null không được cache. Nếu entry bị vô hiệu hóa trong lúc đang
+ * load thì kết quả load đó không được lưu, tránh cache lại dữ liệu cũ.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public class NearCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    // Tăng mỗi lần invalidate, dùng để bỏ kết quả load đã cũ
+    private long version = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public NearCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > NearCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Lấy giá trị từ cache, miss thì load bằng loader
+     */
+    public V get(K key, Function<K, V> loader) {
+        long loadVersion;
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return entry.value();
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+            loadVersion = version;
+        } finally {
+            lock.unlock();
+        }
+
+        misses.incrementAndGet();
+        V value = loader.apply(key);
+        if (value == null) {
+            return null;
+        }
+
+        lock.lock();
+        try {
+            if (version == loadVersion) {
+                entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+            }
+        } finally {
+            lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Lấy giá trị nếu đang có trong cache, không load
+     */
+    public V getIfPresent(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > System.currentTimeMillis()) {
+                    hits.incrementAndGet();
+                    return entry.value();
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        } finally {
+            lock.unlock();
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Phiên bản hiện tại - lấy trước khi tự tạo giá trị, truyền lại cho put()
+     */
+    public long version() {
+        lock.lock();
+        try {
+            return version;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lưu giá trị tự tạo bên ngoài cache.
+     * Bỏ qua nếu cache đã bị vô hiệu hóa kể từ loadVersion.
+     */
+    public void put(K key, V value, long loadVersion) {
+        if (value == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (version == loadVersion) {
+                entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Xóa một entry
+     */
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            version++;
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Xóa toàn bộ cache
+     */
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            version++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Thống kê: size, hits, misses, evictions, hitRatio
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long total = hitCount + misses.get();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", misses.get());
+        stats.put("evictions", evictions.get());
+        stats.put("hitRatio", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
@@ -0,0 +1,30 @@
+package com.phanthanhthien.cmp3025.bookstore.utils;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * ThreadFactories - Tạo thread có tên cho các pool nền của ứng dụng
+ *
+ * Khi bật chế độ virtual thread (spring.threads.virtual.enabled) các pool
+ * tự quản lý (worker outbox, job nhập sách) cũng dùng virtual thread,
+ * giống Tomcat, @Async và @Scheduled.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+public final class ThreadFactories {
+
+    private ThreadFactories() {
+        // Private constructor để ngăn khởi tạo
+    }
+
+    /**
+     * Thread tên prefix-1, prefix-2, ... (virtual hoặc platform daemon)
+     */
+    public static ThreadFactory named(String prefix, boolean virtual) {
+        if (virtual) {
+            return Thread.ofVirtual().name(prefix + "-", 1).factory();
+        }
+        return Thread.ofPlatform().name(prefix + "-", 1).daemon(true).factory();
+    }
+}
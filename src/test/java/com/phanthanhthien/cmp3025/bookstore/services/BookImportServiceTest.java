@@ -0,0 +1,113 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BookImportServiceTest - Đọc số tiền và bản ghi CSV khi nhập sách
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+class BookImportServiceTest {
+
+    // ===== parseMoney =====
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "150,000 VNĐ    | 150000",
+            "150.000 VNĐ    | 150000",
+            "150,000VNĐ     | 150000",
+            "150000 vnd     | 150000",
+            "150.000 ₫      | 150000",
+            "150.000đ       | 150000",
+            "150,000        | 150000",
+            "150.000        | 150000",
+            "1.234.567      | 1234567",
+            "1 234 567 VND  | 1234567",
+            "150000         | 150000",
+            "99.5           | 99.5",
+            "99,5           | 99.5",
+            "1,234.56       | 1234.56",
+            "1.234,56       | 1234.56",
+            "0              | 0"
+    })
+    void parseMoneyAcceptsSeparatorsAndCurrencySuffixes(String input, String expected) {
+        assertThat(BookImportService.parseMoney(input)).isEqualByComparingTo(new BigDecimal(expected));
+    }
+
+    @Test
+    void parseMoneyAcceptsExcelExportFormat() {
+        // ExcelExportService ghi giá với định dạng #,##0" VNĐ", DataFormatter trả về chuỗi này
+        assertThat(BookImportService.parseMoney("1,250,000 VNĐ")).isEqualByComparingTo("1250000");
+        assertThat(BookImportService.parseMoney("1,250,000 VNĐ")).isEqualByComparingTo("1250000");
+    }
+
+    @Test
+    void parseMoneyReturnsNullForMissingValue() {
+        assertThat(BookImportService.parseMoney(null)).isNull();
+    }
+
+    @Test
+    void parseMoneyRejectsText() {
+        assertThatThrownBy(() -> BookImportService.parseMoney("miễn phí"))
+                .isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> BookImportService.parseMoney("12abc"))
+                .isInstanceOf(NumberFormatException.class);
+    }
+
+    // ===== readCsvRow =====
+
+    @Test
+    void readCsvRowSplitsPlainFields() throws IOException {
+        assertThat(readAll("title,author,price\nClean Code,Robert Martin,150000\n")).containsExactly(
+                List.of("title", "author", "price"),
+                List.of("Clean Code", "Robert Martin", "150000"));
+    }
+
+    @Test
+    void readCsvRowHandlesQuotedCommasQuotesAndNewlines() throws IOException {
+        String csv = "\"Sapiens, Lược sử loài người\",\"Yuval \"\"Noah\"\" Harari\",\"Dòng 1\nDòng 2\"\n";
+        assertThat(readAll(csv)).containsExactly(
+                List.of("Sapiens, Lược sử loài người", "Yuval \"Noah\" Harari", "Dòng 1\nDòng 2"));
+    }
+
+    @Test
+    void readCsvRowHandlesCrlfEmptyFieldsAndMissingFinalNewline() throws IOException {
+        assertThat(readAll("a,,c\r\n,b,\r\n\"x\",y")).containsExactly(
+                List.of("a", "", "c"),
+                List.of("", "b", ""),
+                List.of("x", "y"));
+    }
+
+    @Test
+    void readCsvRowKeepsQuotedFieldEndingAtEndOfFile() throws IOException {
+        assertThat(readAll("Đắc Nhân Tâm,\"86,000 VNĐ\"")).containsExactly(
+                List.of("Đắc Nhân Tâm", "86,000 VNĐ"));
+    }
+
+    @Test
+    void readCsvRowReturnsNullAtEndOfFile() throws IOException {
+        assertThat(BookImportService.readCsvRow(new BufferedReader(new StringReader("")))).isNull();
+    }
+
+    private static List<List<String>> readAll(String csv) throws IOException {
+        BufferedReader reader = new BufferedReader(new StringReader(csv));
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row;
+        while ((row = BookImportService.readCsvRow(reader)) != null) {
+            rows.add(row);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,141 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.dto.CursorPage;
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.support.MongoTestSupport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BookServiceTest - Phân trang theo con trỏ (keyset pagination)
+ *
+ * Dữ liệu trộn giá trị null / thiếu field với các giá trị trùng nhau, để
+ * mỗi khóa sắp xếp đi qua cả nhóm null lẫn phần so sánh theo _id.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+class BookServiceTest extends MongoTestSupport {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 1, 1, 8, 0);
+
+    // {giá, số ngày sau T0}; null = thiếu field
+    private static final Object[][] BOOKS = {
+            {null, 3},
+            {"50000", null},
+            {"30000", 1},
+            {null, null},
+            {"50000", 3},
+            {"10000", 0},
+            {null, 1},
+            {"30000", null},
+            {"50000", 2},
+            {null, 3},
+            {"20000", 0},
+            {"99000.50", 5},
+    };
+
+    private BookService service;
+    private List<Book> books;
+
+    @BeforeEach
+    void setUp() {
+        service = new BookService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+
+        books = new ArrayList<>();
+        for (int i = 0; i < BOOKS.length; i++) {
+            Book book = new Book((long) i + 1, "Sách " + (i + 1), "Tác giả", null,
+                    BOOKS[i][0] != null ? new BigDecimal((String) BOOKS[i][0]) : null, 10, 1L);
+            book.setCreatedAt(BOOKS[i][1] != null ? T0.plusDays((Integer) BOOKS[i][1]) : null);
+            books.add(mongoTemplate.insert(book));
+        }
+    }
+
+    @ParameterizedTest(name = "sort={0}, size={1}")
+    @CsvSource({
+            "id, 5",
+            "-id, 5",
+            "price, 1",
+            "price, 3",
+            "price, 5",
+            "-price, 1",
+            "-price, 3",
+            "-price, 5",
+            "createdAt, 1",
+            "createdAt, 3",
+            "createdAt, 5",
+            "-createdAt, 1",
+            "-createdAt, 3",
+            "-createdAt, 5"
+    })
+    void pagingVisitsEveryBookOnceInSortOrder(String sort, int size) {
+        List<Long> visited = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            CursorPage<Book> page = service.findPage(sort, cursor, size);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(size);
+            for (Book book : page.getItems()) {
+                assertThat(seen.add(book.getId())).as("sách %d lặp lại", book.getId()).isTrue();
+                visited.add(book.getId());
+            }
+            cursor = page.getNextCursor();
+            assertThat(++pages).isLessThanOrEqualTo(BOOKS.length);
+        } while (cursor != null);
+
+        assertThat(visited).containsExactlyElementsOf(expectedOrder(sort));
+    }
+
+    @Test
+    void cursorFromAnotherSortIsRejected() {
+        String cursor = service.findPage("price", null, 2).getNextCursor();
+
+        assertThatThrownBy(() -> service.findPage("-price", cursor, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void malformedCursorIsRejected() {
+        assertThatThrownBy(() -> service.findPage("price", "không-phải-cursor", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Thứ tự MongoDB: null / thiếu field đứng trước mọi giá trị, hòa thì theo _id cùng chiều
+    private List<Long> expectedOrder(String sort) {
+        boolean descending = sort.startsWith("-");
+        String field = descending ? sort.substring(1) : sort;
+        Comparator<Book> ascending = switch (field) {
+            case "price" -> nullsFirst(Book::getPrice);
+            case "createdAt" -> nullsFirst(Book::getCreatedAt);
+            default -> Comparator.comparing(Book::getId);
+        };
+
+        List<Long> ids = new ArrayList<>(books.stream().sorted(ascending).map(Book::getId).toList());
+        if (descending) {
+            Collections.reverse(ids);
+        }
+        return ids;
+    }
+
+    private static <T extends Comparable<? super T>> Comparator<Book> nullsFirst(Function<Book, T> key) {
+        return Comparator.comparing(key, Comparator.nullsFirst(Comparator.<T>naturalOrder()))
+                .thenComparing(Book::getId);
+    }
+}
@@ -0,0 +1,184 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * MomoGatewayClientTest - Kiểm tra timeout, bulkhead và circuit breaker
+ *
+ * Dùng HttpServer của JDK làm stub cổng MoMo trên cổng ngẫu nhiên, có thể
+ * chèn độ trễ, chặn request bằng latch và đổi HTTP status trả về.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+class MomoGatewayClientTest {
+
+    private static final String PATH = "/v2/gateway/api/create";
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ExecutorService callers;
+    private String url;
+
+    // Hành vi của stub, đổi được giữa các bước trong test
+    private volatile int status = 200;
+    private volatile long delayMs = 0;
+    private volatile CountDownLatch gate = new CountDownLatch(0);
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Semaphore arrivals = new Semaphore(0);
+
+    @BeforeEach
+    void startStub() throws Exception {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext(PATH, exchange -> {
+            requests.incrementAndGet();
+            arrivals.release();
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = ("{\"resultCode\":" + (status == 200 ? 0 : 99) + "}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + PATH;
+        callers = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopStub() {
+        gate.countDown();
+        callers.shutdownNow();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void readTimeoutFiresWhenGatewayIsSlow() {
+        MomoGatewayClient client = client(200, 20, 5, 30_000);
+        delayMs = 2_000;
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> client.post(url, Map.of("orderId", "1")))
+                .isInstanceOf(ResourceAccessException.class)
+                .hasRootCauseInstanceOf(HttpTimeoutException.class);
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat(elapsedMs).isLessThan(delayMs);
+        assertThat(client.getInFlightCalls()).isZero();
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondMaxConcurrentCalls() throws Exception {
+        MomoGatewayClient client = client(5_000, 2, 5, 30_000);
+        gate = new CountDownLatch(1);
+
+        Future<Map<String, Object>> first = callers.submit(() -> client.post(url, Map.of("orderId", "1")));
+        Future<Map<String, Object>> second = callers.submit(() -> client.post(url, Map.of("orderId", "2")));
+        assertThat(arrivals.tryAcquire(2, 5, TimeUnit.SECONDS)).isTrue();
+        assertThat(client.getInFlightCalls()).isEqualTo(2);
+
+        assertThatThrownBy(() -> client.post(url, Map.of("orderId", "3")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("quá tải");
+        assertThat(requests.get()).isEqualTo(2);
+
+        gate.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsEntry("resultCode", 0);
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsEntry("resultCode", 0);
+        assertThat(client.getInFlightCalls()).isZero();
+    }
+
+    @Test
+    void breakerOpensThenAllowsSingleHalfOpenTrialThenCloses() throws Exception {
+        MomoGatewayClient client = client(5_000, 20, 3, 300);
+        status = 500;
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.post(url, Map.of("orderId", "1")))
+                    .isInstanceOf(HttpServerErrorException.class);
+        }
+        assertThat(client.getState()).isEqualTo("OPEN");
+
+        // OPEN: fail fast, không gọi tới MoMo
+        assertThatThrownBy(() -> client.post(url, Map.of("orderId", "1")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("không khả dụng");
+        assertThat(requests.get()).isEqualTo(3);
+
+        Thread.sleep(400);
+        assertThat(client.getState()).isEqualTo("HALF_OPEN");
+
+        // HALF_OPEN: chỉ một request thử được đi qua
+        status = 200;
+        gate = new CountDownLatch(1);
+        Future<Map<String, Object>> trial = callers.submit(() -> client.post(url, Map.of("orderId", "1")));
+        assertThat(arrivals.tryAcquire(4, 5, TimeUnit.SECONDS)).isTrue();
+        assertThatThrownBy(() -> client.post(url, Map.of("orderId", "2")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("không khả dụng");
+        assertThat(requests.get()).isEqualTo(4);
+
+        gate.countDown();
+        assertThat(trial.get(5, TimeUnit.SECONDS)).containsEntry("resultCode", 0);
+        assertThat(client.getState()).isEqualTo("CLOSED");
+        assertThat(client.post(url, Map.of("orderId", "3"))).containsEntry("resultCode", 0);
+    }
+
+    @Test
+    void clientErrorsDoNotOpenBreaker() {
+        MomoGatewayClient client = client(5_000, 20, 2, 30_000);
+        status = 400;
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> client.post(url, Map.of("orderId", "1")))
+                    .isInstanceOf(HttpClientErrorException.class);
+        }
+        assertThat(client.getState()).isEqualTo("CLOSED");
+        assertThat(requests.get()).isEqualTo(3);
+    }
+
+    private static MomoGatewayClient client(long readTimeoutMs, int maxConcurrentCalls,
+            int failureThreshold, long openDurationMs) {
+        MomoGatewayClient client = new MomoGatewayClient();
+        ReflectionTestUtils.setField(client, "connectTimeoutMs", 1_000L);
+        ReflectionTestUtils.setField(client, "readTimeoutMs", readTimeoutMs);
+        ReflectionTestUtils.setField(client, "maxConcurrentCalls", maxConcurrentCalls);
+        ReflectionTestUtils.setField(client, "bulkheadWaitMs", 50L);
+        ReflectionTestUtils.setField(client, "failureThreshold", failureThreshold);
+        ReflectionTestUtils.setField(client, "openDurationMs", openDurationMs);
+        client.init();
+        return client;
+    }
+}
@@ -0,0 +1,215 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Book;
+import com.phanthanhthien.cmp3025.bookstore.entities.CartItem;
+import com.phanthanhthien.cmp3025.bookstore.entities.Order;
+import com.phanthanhthien.cmp3025.bookstore.repository.OrderRepository;
+import com.phanthanhthien.cmp3025.bookstore.support.MongoTestSupport;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * MomoPaymentServiceTest - Trừ kho khi thanh toán thành công
+ *
+ * Chạy trên MongoDB thật để kiểm tra bulkWrite có điều kiện, dấu
+ * stockOrders trên books, hoàn kho (compensation) và REFUND_REQUIRED.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+class MomoPaymentServiceTest extends MongoTestSupport {
+
+    private static final String ORDER_ID = "order-1";
+
+    private MomoPaymentService service;
+    private OrderRepository orderRepository;
+    private BookSearchIndex bookSearchIndex;
+    private CatalogCache catalogCache;
+
+    @BeforeEach
+    void setUp() {
+        orderRepository = repository(OrderRepository.class);
+        bookSearchIndex = mock(BookSearchIndex.class);
+        catalogCache = mock(CatalogCache.class);
+
+        service = new MomoPaymentService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "orderRepository", orderRepository);
+        ReflectionTestUtils.setField(service, "bookSearchIndex", bookSearchIndex);
+        ReflectionTestUtils.setField(service, "catalogCache", catalogCache);
+    }
+
+    @Test
+    void successfulPaymentDecreasesStockAndMarksDone() {
+        book(1L, 5);
+        book(2L, 3);
+        // Hai dòng cùng một sách được gộp lại: sách 1 trừ 3
+        order(item(1L, 2), item(2L, 1), item(1L, 1));
+
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+
+        assertThat(stock(1L)).isEqualTo(2);
+        assertThat(stock(2L)).isEqualTo(2);
+        assertThat(markers(1L)).isEmpty();
+        assertThat(markers(2L)).isEmpty();
+
+        Order order = orderRepository.findById(ORDER_ID).orElseThrow();
+        assertThat(order.getPaymentStatus()).isEqualTo("SUCCESS");
+        assertThat(order.getStockStatus()).isEqualTo("DONE");
+        assertThat(order.getMomoTransId()).isEqualTo("trans-1");
+        verify(bookSearchIndex).adjustStock(1L, -3);
+        verify(bookSearchIndex).adjustStock(2L, -1);
+    }
+
+    @Test
+    void replayedCallbackAndIpnAreNotAppliedTwice() {
+        book(1L, 5);
+        book(2L, 3);
+        order(item(1L, 2), item(2L, 1));
+
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+        // Callback redirect và IPN (orderId có hậu tố _timestamp) cùng báo về
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+        assertThat(service.applyPaymentResult(ORDER_ID + "_1712345678", 0, "trans-1")).isTrue();
+
+        assertThat(stock(1L)).isEqualTo(3);
+        assertThat(stock(2L)).isEqualTo(2);
+        verify(bookSearchIndex, times(1)).adjustStock(1L, -2);
+        verify(bookSearchIndex, times(1)).adjustStock(2L, -1);
+    }
+
+    @Test
+    void retryAfterInterruptedStockStepDoesNotDecrementTwice() {
+        book(1L, 5);
+        book(2L, 3);
+        order(item(1L, 2), item(2L, 1));
+
+        // Lần trước: đã SUCCESS, đã trừ sách 1 (còn mang dấu) rồi dừng giữa chừng
+        mongoTemplate.updateFirst(new Query(Criteria.where("id").is(ORDER_ID)),
+                new Update().set("paymentStatus", "SUCCESS").set("stockStatus", "PENDING"), Order.class);
+        mongoTemplate.getCollection("books").updateOne(Filters.eq("_id", 1L),
+                Updates.combine(Updates.inc("stock", -2), Updates.addToSet("stockOrders", ORDER_ID)));
+
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+
+        assertThat(stock(1L)).isEqualTo(3);
+        assertThat(stock(2L)).isEqualTo(2);
+        assertThat(markers(1L)).isEmpty();
+        assertThat(orderRepository.findById(ORDER_ID).orElseThrow().getStockStatus()).isEqualTo("DONE");
+    }
+
+    @Test
+    void shortStockLineIsCompensated() {
+        book(1L, 5);
+        book(2L, 1);
+        order(item(1L, 2), item(2L, 3));
+
+        Map<Long, Boolean> report = service.decreaseStock(ORDER_ID, orderRepository.findById(ORDER_ID)
+                .orElseThrow().getItems());
+
+        assertThat(report).containsExactly(Map.entry(1L, true), Map.entry(2L, false));
+        // Dòng đã trừ được hoàn lại, không còn dấu của đơn
+        assertThat(stock(1L)).isEqualTo(5);
+        assertThat(stock(2L)).isEqualTo(1);
+        assertThat(markers(1L)).isEmpty();
+    }
+
+    @Test
+    void shortStockOnPaidOrderEndsInRefundRequired() {
+        book(1L, 5);
+        book(2L, 1);
+        order(item(1L, 2), item(2L, 3));
+
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+
+        assertThat(stock(1L)).isEqualTo(5);
+        assertThat(stock(2L)).isEqualTo(1);
+        Order order = orderRepository.findById(ORDER_ID).orElseThrow();
+        assertThat(order.getPaymentStatus()).isEqualTo("SUCCESS");
+        assertThat(order.getOrderStatus()).isEqualTo("REFUND_REQUIRED");
+        assertThat(order.getStockStatus()).isEqualTo("FAILED");
+        verifyNoInteractions(bookSearchIndex);
+
+        // Lần báo về sau không thử trừ kho lại
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+        assertThat(stock(1L)).isEqualTo(5);
+    }
+
+    @Test
+    void missingBookEndsInRefundRequiredWithoutPhantomDocument() {
+        book(1L, 5);
+        order(item(1L, 1), item(999L, 1));
+
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+
+        assertThat(stock(1L)).isEqualTo(5);
+        assertThat(mongoTemplate.getCollection("books").countDocuments(Filters.eq("_id", 999L))).isZero();
+        Order order = orderRepository.findById(ORDER_ID).orElseThrow();
+        assertThat(order.getOrderStatus()).isEqualTo("REFUND_REQUIRED");
+        assertThat(order.getStockStatus()).isEqualTo("FAILED");
+    }
+
+    @Test
+    void failedPaymentDoesNotOverwriteSuccessfulOne() {
+        book(1L, 5);
+        order(item(1L, 1));
+
+        assertThat(service.applyPaymentResult(ORDER_ID, 0, "trans-1")).isTrue();
+        assertThat(service.applyPaymentResult(ORDER_ID, 1006, null)).isFalse();
+
+        assertThat(orderRepository.findById(ORDER_ID).orElseThrow().getPaymentStatus()).isEqualTo("SUCCESS");
+        assertThat(stock(1L)).isEqualTo(4);
+    }
+
+    @Test
+    void unknownOrderIsRejected() {
+        assertThatThrownBy(() -> service.applyPaymentResult("missing", 0, "trans-1"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // ===== Dữ liệu mẫu =====
+
+    private void book(Long id, int stock) {
+        mongoTemplate.insert(new Book(id, "Sách " + id, "Tác giả", null, new BigDecimal("100000"), stock, 1L));
+    }
+
+    private void order(CartItem... items) {
+        Order order = new Order("user-1", "user", List.of(items), new BigDecimal("100000"));
+        order.setId(ORDER_ID);
+        order.setPaymentMethod("MOMO");
+        order.setOrderStatus("PENDING");
+        mongoTemplate.insert(order);
+    }
+
+    private static CartItem item(Long bookId, int quantity) {
+        return new CartItem(bookId, "Sách " + bookId, "Tác giả", null, new BigDecimal("100000"), quantity);
+    }
+
+    private int stock(Long bookId) {
+        Document book = mongoTemplate.getCollection("books").find(Filters.eq("_id", bookId)).first();
+        return book.getInteger("stock");
+    }
+
+    private List<?> markers(Long bookId) {
+        Document book = mongoTemplate.getCollection("books").find(Filters.eq("_id", bookId)).first();
+        List<?> markers = book.get("stockOrders", List.class);
+        return markers != null ? markers : List.of();
+    }
+}
@@ -0,0 +1,113 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * VoucherCodeIndexTest - Chỉ mục voucher trong bộ nhớ
+ *
+ * MongoTemplate là mock: findAll trả về dữ liệu do test chọn, có thể chèn
+ * một put vào giữa lúc rebuild đang đọc DB.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+class VoucherCodeIndexTest {
+
+    private VoucherCodeIndex index;
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(MongoTemplate.class);
+        index = new VoucherCodeIndex();
+        ReflectionTestUtils.setField(index, "mongoTemplate", mongoTemplate);
+    }
+
+    @Test
+    void findActiveIgnoresCaseAndSurroundingSpaces() {
+        index.put(voucher("v1", "SALE50", 0));
+
+        assertThat(index.findActive("  sale50 ")).map(Voucher::getId).contains("v1");
+        assertThat(index.findActive("SALE5")).isEmpty();
+    }
+
+    @Test
+    void findActiveReturnsCopiesOfIndexedVoucher() {
+        Voucher saved = voucher("v1", "SALE50", 0);
+        index.put(saved);
+
+        // Sửa entity của nơi gọi sau khi đưa vào chỉ mục
+        saved.setIsActive(false);
+        Voucher first = index.findActive("SALE50").orElseThrow();
+        first.setCurrentUsage(99);
+
+        Voucher second = index.findActive("SALE50").orElseThrow();
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.getIsActive()).isTrue();
+        assertThat(second.getCurrentUsage()).isZero();
+    }
+
+    @Test
+    void rebuildDiscardsSnapshotReadBeforeConcurrentPut() {
+        Voucher stale = voucher("v1", "SALE50", 3);
+        Voucher newer = voucher("v1", "SALE50", 4);
+        // Lần đọc đầu: trong lúc findAll chạy, incrementUsage ghi bản mới vào chỉ mục
+        when(mongoTemplate.findAll(Voucher.class))
+                .thenAnswer(invocation -> {
+                    index.put(newer);
+                    return List.of(stale);
+                })
+                .thenReturn(List.of(newer));
+
+        index.rebuild();
+
+        assertThat(index.findActive("SALE50").orElseThrow().getCurrentUsage()).isEqualTo(4);
+        verify(mongoTemplate, times(2)).findAll(Voucher.class);
+    }
+
+    @Test
+    void rebuildDropsVouchersNoLongerActive() {
+        index.put(voucher("v1", "SALE50", 0));
+        Voucher disabled = voucher("v1", "SALE50", 0);
+        disabled.setIsActive(false);
+        when(mongoTemplate.findAll(Voucher.class)).thenReturn(List.of(disabled, voucher("v2", "FLASH10", 0)));
+
+        index.rebuild();
+
+        assertThat(index.findActive("SALE50")).isEmpty();
+        assertThat(index.findActive("flash10")).isPresent();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void startWithoutChangeStreamLoadsOnce() {
+        ReflectionTestUtils.setField(index, "changeStreamEnabled", false);
+        when(mongoTemplate.findAll(Voucher.class)).thenReturn(List.of(voucher("v1", "SALE50", 0)));
+
+        index.start();
+
+        assertThat(index.size()).isEqualTo(1);
+        verify(mongoTemplate, times(1)).findAll(Voucher.class);
+    }
+
+    private static Voucher voucher(String id, String code, int currentUsage) {
+        Voucher voucher = new Voucher(code, "Giảm 10%", new BigDecimal("10"), null, null,
+                50, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+        voucher.setId(id);
+        voucher.setCurrentUsage(currentUsage);
+        return voucher;
+    }
+}
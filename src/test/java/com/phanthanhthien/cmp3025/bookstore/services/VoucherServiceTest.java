@@ -0,0 +1,160 @@
+package com.phanthanhthien.cmp3025.bookstore.services;
+
+import com.phanthanhthien.cmp3025.bookstore.entities.Voucher;
+import com.phanthanhthien.cmp3025.bookstore.repository.VoucherRepository;
+import com.phanthanhthien.cmp3025.bookstore.support.MongoTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * VoucherServiceTest - Trừ lượt sử dụng voucher khi nhiều checkout chạy đồng thời
+ * và chuẩn hóa mã voucher khi tạo / sửa
+ *
+ * Tất cả luồng chờ ở cùng một latch rồi gọi incrementUsage cùng lúc, nên
+ * các findAndModify thực sự tranh nhau trên một document.
+ *
+ * Author: Phan Thanh Thien - MSSV: 2280603036
+ */
+class VoucherServiceTest extends MongoTestSupport {
+
+    private static final int CALLERS = 200;
+
+    private VoucherService service;
+    private VoucherRepository voucherRepository;
+    private ExecutorService callers;
+
+    @BeforeEach
+    void setUp() {
+        voucherRepository = repository(VoucherRepository.class);
+        service = new VoucherService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "voucherRepository", voucherRepository);
+        ReflectionTestUtils.setField(service, "voucherCodeIndex", mock(VoucherCodeIndex.class));
+        callers = Executors.newFixedThreadPool(32);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentRedemptionsNeverExceedMaxUsage() throws Exception {
+        Voucher voucher = voucher(50, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), true);
+
+        assertThat(redeemConcurrently(voucher.getId())).isEqualTo(50);
+        assertThat(currentUsage(voucher)).isEqualTo(50);
+
+        // Hết lượt -> các lần sau đều bị từ chối
+        assertThat(service.incrementUsage(voucher.getId())).isFalse();
+        assertThat(currentUsage(voucher)).isEqualTo(50);
+    }
+
+    @Test
+    void concurrentRedemptionsOfExpiredVoucherAllFail() throws Exception {
+        Voucher voucher = voucher(50, LocalDateTime.now().minusDays(10), LocalDateTime.now().minusDays(1), true);
+
+        assertThat(redeemConcurrently(voucher.getId())).isZero();
+        assertThat(currentUsage(voucher)).isZero();
+    }
+
+    @Test
+    void concurrentRedemptionsBeforeValidFromAllFail() throws Exception {
+        Voucher voucher = voucher(50, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(10), true);
+
+        assertThat(redeemConcurrently(voucher.getId())).isZero();
+        assertThat(currentUsage(voucher)).isZero();
+    }
+
+    @Test
+    void concurrentRedemptionsOfInactiveVoucherAllFail() throws Exception {
+        Voucher voucher = voucher(50, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), false);
+
+        assertThat(redeemConcurrently(voucher.getId())).isZero();
+        assertThat(currentUsage(voucher)).isZero();
+    }
+
+    @Test
+    void unknownVoucherIsNotRedeemed() {
+        assertThat(service.incrementUsage("000000000000000000000000")).isFalse();
+    }
+
+    // ===== Mã voucher =====
+
+    @Test
+    void createStoresNormalizedCodeAndRejectsCaseVariants() {
+        Voucher created = service.create(newVoucher(" sale50 "));
+
+        assertThat(created.getCode()).isEqualTo("SALE50");
+        assertThat(service.findByCode("Sale50")).map(Voucher::getId).contains(created.getId());
+        assertThatThrownBy(() -> service.create(newVoucher("Sale50")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("đã tồn tại");
+        assertThat(service.count()).isEqualTo(1);
+    }
+
+    @Test
+    void updateRejectsCodeOfAnotherVoucherInAnyCase() {
+        Voucher first = service.create(newVoucher("SALE50"));
+        Voucher second = service.create(newVoucher("FLASH10"));
+
+        assertThatThrownBy(() -> service.update(second.getId(), newVoucher("sale50")))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        // Giữ mã của chính nó (khác hoa thường) vẫn cập nhật được
+        assertThat(service.update(first.getId(), newVoucher("sale50")).getCode()).isEqualTo("SALE50");
+    }
+
+    // Gọi incrementUsage từ CALLERS luồng cùng lúc, trả về số lần thành công
+    private int redeemConcurrently(String voucherId) throws Exception {
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            results.add(callers.submit(() -> {
+                startGate.await();
+                return service.incrementUsage(voucherId);
+            }));
+        }
+        startGate.countDown();
+
+        int redeemed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get(30, TimeUnit.SECONDS)) {
+                redeemed++;
+            }
+        }
+        return redeemed;
+    }
+
+    private Voucher voucher(int maxUsage, LocalDateTime validFrom, LocalDateTime validTo, boolean active) {
+        Voucher voucher = new Voucher("SALE50", "Giảm 10%", new BigDecimal("10"), null, null,
+                maxUsage, validFrom, validTo);
+        voucher.setIsActive(active);
+        return voucherRepository.save(voucher);
+    }
+
+    private static Voucher newVoucher(String code) {
+        return new Voucher(code, "Giảm 10%", new BigDecimal("10"), null, null,
+                50, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1));
+    }
+
+    private int currentUsage(Voucher voucher) {
+        return voucherRepository.findById(voucher.getId()).orElseThrow().getCurrentUsage();
+    }
+}
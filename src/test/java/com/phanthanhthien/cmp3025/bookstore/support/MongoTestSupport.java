@@ -0,0 +1,59 @@
+package com.phanthanhthien.cmp3025.bookstore.support;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * MongoTestSupport - Lớp cơ sở cho test chạy trên MongoDB thật
+ *
+ * MongoDB 7 trong Testcontainers (replica set một node, nên có cả
+ * transaction và change stream). Không dựng Spring context: test tự tạo
+ * service và gán MongoTemplate / repository bằng ReflectionTestUtils.
+ * Mỗi test bắt đầu với database trống. Máy không có Docker thì bỏ qua.
+ *
+ * @author Phan Thanh Thien
+ * @version 1.0.0
+ */
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoTestSupport {
+
+    // Một container cho cả lượt chạy test, Testcontainers (Ryuk) dọn khi JVM kết thúc
+    private static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+
+    protected MongoTemplate mongoTemplate;
+
+    @BeforeAll
+    static void connect() {
+        if (!MONGO.isRunning()) {
+            MONGO.start();
+        }
+        client = MongoClients.create(MONGO.getConnectionString());
+    }
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+    @BeforeEach
+    void cleanDatabase() {
+        mongoTemplate = new MongoTemplate(client, "bookstore_test");
+        mongoTemplate.getDb().drop();
+    }
+
+    /**
+     * Repository Spring Data trên MongoTemplate của test
+     */
+    protected <T> T repository(Class<T> repositoryInterface) {
+        return new MongoRepositoryFactory(mongoTemplate).getRepository(repositoryInterface);
+    }
+}